@@ -0,0 +1,45 @@
+import java.util.Arrays;
+
+//The distinct chars of a text, ranked in increasing order. Used to pick a ChildMap representation per tree.
+public class Alphabet {
+    //Alphabets up to this size get direct-indexed child arrays
+    static final int MAX_INDEXED_SIZE = 16;
+
+    private final int[] ranks;
+    private final int size;
+
+    private Alphabet(int[] ranks, int size) {
+        this.ranks = ranks;
+        this.size = size;
+    }
+
+    public static Alphabet of(CharSequence text) {
+        int max = -1;
+        for (int i = 0; i < text.length(); ++i)
+            max = Math.max(max, text.charAt(i));
+        //Sized to the text's largest char, so small trees do not each pay for the whole char range
+        boolean[] seen = new boolean[max + 1];
+        for (int i = 0; i < text.length(); ++i)
+            seen[text.charAt(i)] = true;
+        int[] ranks = new int[max + 1];
+        Arrays.fill(ranks, -1);
+        int size = 0;
+        for (int c = 0; c <= max; ++c)
+            if (seen[c])
+                ranks[c] = size++;
+        return new Alphabet(ranks, size);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    //Rank of c among the alphabet's chars, or -1 if c is not in the alphabet
+    public int rank(char c) {
+        return c < ranks.length ? ranks[c] : -1;
+    }
+
+    public ChildMap newChildMap() {
+        return size <= MAX_INDEXED_SIZE ? new IndexedChildMap(this) : new SortedChildMap();
+    }
+}
@@ -0,0 +1,193 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.IntStream;
+
+//Bounded-error search over a SuffixTree: every start position where the pattern occurs with at most k mismatches
+//(Hamming distance) or k edits (Levenshtein distance). Each search is a DFS over the edges that carries the
+//distance of the path spelled so far along every edge char, prunes a path as soon as no extension of it can come
+//within k, and reports a whole subtree as soon as its path matches. For edits the DP column only keeps the band
+//of 2k + 1 cells around the diagonal, the only ones that can be within k, so a path char costs O(k) and no path
+//is followed further than |pattern| + k chars. The subtrees under root are searched in parallel.
+//
+//The tree must not be appended to during a search.
+public class ApproximateMatcher {
+    private final SuffixTree tree;
+    private final ForkJoinPool pool;
+
+    public ApproximateMatcher(SuffixTree tree) {
+        this(tree, ForkJoinPool.commonPool());
+    }
+
+    public ApproximateMatcher(SuffixTree tree, ForkJoinPool pool) {
+        this.tree = tree;
+        this.pool = pool;
+    }
+
+    //Starts of the substrings of length |pattern| differing from it in at most k chars, in no particular order
+    public IntStream findWithMismatches(CharSequence pattern, int k) {
+        return search(pattern, k, false);
+    }
+
+    //Starts of the substrings within k insertions, deletions and substitutions of pattern, in no particular
+    //order. A start is reported once however many substrings from it match.
+    public IntStream findWithEdits(CharSequence pattern, int k) {
+        return search(pattern, k, true);
+    }
+
+    private IntStream search(CharSequence pattern, int k, boolean edits) {
+        if (k < 0)
+            throw new IllegalArgumentException("k must not be negative, got " + k);
+        int length = tree.length();
+        //Every start matches the empty pattern, and with edits any pattern of at most k chars
+        if (pattern.length() == 0 || edits && pattern.length() <= k)
+            return IntStream.range(0, length);
+
+        RootNode root = tree.getRoot();
+        CharSequence source = tree.getSource();
+        List<SearchTask> tasks = new ArrayList<>();
+        for (Edge edge : root.getEdgesOut().values())
+            tasks.add(new SearchTask(new Search(source, pattern, k, edits), edge));
+        pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+
+        //The last suffixes are still implicit and have no leaf, so they are matched directly
+        Search pending = new Search(source, pattern, k, edits);
+        IntStream.Builder pendingMatches = IntStream.builder();
+        for (int start = length - tree.getPendingSuffixes(); start < length; ++start)
+            if (pending.matchesAt(start, length))
+                pendingMatches.add(start);
+        IntStream matches = pendingMatches.build();
+        for (SearchTask task : tasks)
+            matches = IntStream.concat(matches, task.search.matches.build());
+        return matches;
+    }
+
+    @SuppressWarnings("serial")
+    private static class SearchTask extends RecursiveAction {
+        private final Search search;
+        private final Edge edge;
+
+        private SearchTask(Search search, Edge edge) {
+            this.search = search;
+            this.edge = edge;
+        }
+
+        @Override
+        protected void compute() {
+            search.searchEdge(edge, 0);
+        }
+    }
+
+    //The DFS state of one search, which walks a single path at a time
+    private static class Search {
+        private static final int OPEN = 0;
+        private static final int MATCH = 1;
+        private static final int PRUNED = 2;
+
+        private final CharSequence source;
+        private final CharSequence pattern;
+        private final int k;
+        private final boolean edits;
+        //Row d describes the path prefix of length d. For mismatches it is the single cell columns[d][0]; for
+        //edits it is the band of the DP column: cell p - d + k holds the edit distance between pattern[0, p) and
+        //the path prefix, for the cells with |p - d| <= k.
+        private final int[][] columns;
+        private final IntStream.Builder matches = IntStream.builder();
+
+        private Search(CharSequence source, CharSequence pattern, int k, boolean edits) {
+            this.source = source;
+            this.pattern = pattern;
+            this.k = k;
+            this.edits = edits;
+            int maxDepth = edits ? pattern.length() + k : pattern.length();
+            columns = new int[maxDepth + 1][edits ? 2 * k + 1 : 1];
+            if (edits)
+                for (int p = 0; p <= Math.min(k, pattern.length()); ++p)
+                    columns[0][p + k] = p;
+        }
+
+        //Searches the subtree below edge, whose parent spells a path of depth chars
+        private void searchEdge(Edge edge, int depth) {
+            int start = edge.getStart();
+            int length = edge.getLength();
+            for (int i = 0; i < length; ++i) {
+                int state = step(depth + i + 1, source.charAt(start + i));
+                if (state == MATCH) {
+                    addLeaves(edge.getTo());
+                    return;
+                }
+                if (state == PRUNED)
+                    return;
+            }
+            if (edge.getTo().isExplicit())
+                for (Edge e : ((InternalNode) edge.getTo()).getEdgesOut().values())
+                    searchEdge(e, depth + length);
+        }
+
+        //Whether some prefix of source[start, end) is within k of pattern
+        private boolean matchesAt(int start, int end) {
+            for (int i = start; i < end; ++i) {
+                int state = step(i - start + 1, source.charAt(i));
+                if (state != OPEN)
+                    return state == MATCH;
+            }
+            return false;
+        }
+
+        //Fills row depth from row depth - 1 and the path char c ending it
+        private int step(int depth, char c) {
+            int m = pattern.length();
+            if (!edits) {
+                int mismatches = columns[depth - 1][0] + (c == pattern.charAt(depth - 1) ? 0 : 1);
+                columns[depth][0] = mismatches;
+                if (mismatches > k)
+                    return PRUNED;
+                return depth == m ? MATCH : OPEN;
+            }
+            int low = Math.max(0, depth - k);
+            int high = Math.min(m, depth + k);
+            if (low > high)
+                return PRUNED;
+            int[] previous = columns[depth - 1];
+            int[] column = columns[depth];
+            int previousLow = Math.max(0, depth - 1 - k);
+            int previousHigh = Math.min(m, depth - 1 + k);
+            int best = Integer.MAX_VALUE;
+            for (int p = low; p <= high; ++p) {
+                //Cell p of this row; cell p - 1 of the previous row has the same index, and cell p the next one
+                int cell = p - depth + k;
+                //Distances above k are capped, since only whether a cell is within k matters
+                int distance = k + 1;
+                if (p == 0)
+                    distance = depth;
+                if (p > previousLow && p - 1 <= previousHigh)
+                    distance = Math.min(distance, previous[cell] + (c == pattern.charAt(p - 1) ? 0 : 1));
+                if (p <= previousHigh)
+                    distance = Math.min(distance, previous[cell + 1] + 1);
+                if (p > low)
+                    distance = Math.min(distance, column[cell - 1] + 1);
+                column[cell] = Math.min(distance, k + 1);
+                best = Math.min(best, column[cell]);
+            }
+            if (high == m && column[m - depth + k] <= k)
+                return MATCH;
+            return best > k ? PRUNED : OPEN;
+        }
+
+        private void addLeaves(Node locus) {
+            ArrayDeque<Node> stack = new ArrayDeque<>();
+            stack.push(locus);
+            while (!stack.isEmpty()) {
+                Node node = stack.pop();
+                if (node.isLeaf())
+                    matches.add(((LeafNode) node).getSuffixIndex());
+                else
+                    for (Edge e : ((InternalNode) node).getEdgesOut().values())
+                        stack.push(e.getTo());
+            }
+        }
+    }
+}
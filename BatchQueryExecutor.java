@@ -0,0 +1,209 @@
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.IntStream;
+
+//Runs batches of queries against one SuffixTree. Patterns are sorted so that each one only walks the part of its
+//path not shared with the previous pattern, and the sorted batch is split into fork/join chunks that each keep
+//their own walk state. Results come back in input order. The tree must not be appended to during a batch.
+//
+//The sort is on a packed key of each pattern's first few chars (as many as fit in 33 bits) rather than on the
+//patterns themselves: a primitive sort is several times faster, and ties beyond the key only cost some sharing.
+public class BatchQueryExecutor {
+    private static final int CHUNK_SIZE = 1 << 10;
+
+    private final SuffixTree tree;
+    private final ForkJoinPool pool;
+    private final Alphabet alphabet;
+    private final int bitsPerChar;
+    private final int charsPerKey;
+
+    public BatchQueryExecutor(SuffixTree tree) {
+        this(tree, ForkJoinPool.commonPool());
+    }
+
+    public BatchQueryExecutor(SuffixTree tree, ForkJoinPool pool) {
+        this.tree = tree;
+        this.pool = pool;
+        alphabet = Alphabet.of(tree.getSource());
+        //Key symbols: 0 past the end of the pattern, rank + 1 for alphabet chars, and size + 1 for any other char
+        bitsPerChar = 32 - Integer.numberOfLeadingZeros(alphabet.size() + 1);
+        charsPerKey = Math.max(1, 33 / bitsPerChar);
+    }
+
+    public boolean[] contains(List<? extends CharSequence> patterns) {
+        boolean[] results = new boolean[patterns.size()];
+        run(patterns, (index, pattern, locus) -> results[index] = locus != null);
+        return results;
+    }
+
+    public int[] countOccurrences(List<? extends CharSequence> patterns) {
+        int[] results = new int[patterns.size()];
+        run(patterns, (index, pattern, locus) -> {
+            if (locus != null)
+                results[index] = leafCount(locus) + tree.countPendingOccurrences(pattern);
+        });
+        return results;
+    }
+
+    //Start positions of every occurrence of each pattern, in no particular order
+    public int[][] findAll(List<? extends CharSequence> patterns) {
+        int[][] results = new int[patterns.size()][];
+        run(patterns, (index, pattern, locus) -> results[index] = locus == null ? new int[0]
+                : IntStream.concat(leaves(locus), tree.pendingOccurrences(pattern)).toArray());
+        return results;
+    }
+
+    private interface Visitor {
+        void visit(int index, CharSequence pattern, Node locus);
+    }
+
+    private void run(List<? extends CharSequence> patterns, Visitor visitor) {
+        RootNode root = tree.getRoot();
+        CharSequence[] batch = patterns.toArray(new CharSequence[0]);
+        long[] keys = new long[batch.length];
+        for (int i = 0; i < keys.length; ++i)
+            keys[i] = prefixKey(batch[i]) << 31 | i;
+        Arrays.sort(keys);
+        int[] order = new int[keys.length];
+        for (int i = 0; i < keys.length; ++i)
+            order[i] = (int) (keys[i] & Integer.MAX_VALUE);
+        ChunkTask task = new ChunkTask(root, tree.getSource(), batch, order, 0, order.length, visitor);
+        if (order.length <= CHUNK_SIZE)
+            task.compute();
+        else
+            pool.invoke(task);
+    }
+
+    private long prefixKey(CharSequence pattern) {
+        long key = 0;
+        for (int i = 0; i < charsPerKey; ++i) {
+            int symbol = 0;
+            if (i < pattern.length()) {
+                int rank = alphabet.rank(pattern.charAt(i));
+                symbol = rank < 0 ? alphabet.size() + 1 : rank + 1;
+            }
+            key = key << bitsPerChar | symbol;
+        }
+        return key;
+    }
+
+    private static int leafCount(Node locus) {
+        return locus.isLeaf() ? 1 : ((InternalNode) locus).getLeafCount();
+    }
+
+    private static IntStream leaves(Node locus) {
+        IntStream.Builder leaves = IntStream.builder();
+        ArrayDeque<Node> stack = new ArrayDeque<>();
+        stack.push(locus);
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            if (node.isLeaf())
+                leaves.add(((LeafNode) node).getSuffixIndex());
+            else
+                for (Edge e : ((InternalNode) node).getEdgesOut().values())
+                    stack.push(e.getTo());
+        }
+        return leaves.build();
+    }
+
+    @SuppressWarnings("serial")
+    private static class ChunkTask extends RecursiveAction {
+        private final RootNode root;
+        private final CharSequence source;
+        private final CharSequence[] batch;
+        private final int[] order;
+        private final int from;
+        private final int to;
+        private final Visitor visitor;
+
+        //Nodes on the current path and how many pattern chars lead to each; nodes[0] is root
+        private Node[] nodes;
+        private int[] depths;
+        private int size;
+        private CharSequence previous;
+        //Length of the previous pattern's longest matching prefix
+        private int previousMatched;
+
+        private ChunkTask(RootNode root, CharSequence source, CharSequence[] batch, int[] order, int from, int to,
+                          Visitor visitor) {
+            this.root = root;
+            this.source = source;
+            this.batch = batch;
+            this.order = order;
+            this.from = from;
+            this.to = to;
+            this.visitor = visitor;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > CHUNK_SIZE) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ChunkTask(root, source, batch, order, from, middle, visitor),
+                        new ChunkTask(root, source, batch, order, middle, to, visitor));
+                return;
+            }
+            nodes = new Node[16];
+            depths = new int[16];
+            nodes[0] = root;
+            size = 1;
+            previous = "";
+            for (int i = from; i < to; ++i) {
+                CharSequence pattern = batch[order[i]];
+                visitor.visit(order[i], pattern, locate(pattern));
+                previous = pattern;
+            }
+        }
+
+        //Like SuffixTree.locate, but resumes from the deepest node shared with the previous pattern's walk
+        private Node locate(CharSequence pattern) {
+            int shared = commonPrefix(previous, pattern);
+            //The previous pattern already failed within the shared prefix
+            if (previousMatched < Math.min(shared, previous.length()))
+                return null;
+            while (depths[size - 1] > shared)
+                --size;
+            Node node = nodes[size - 1];
+            int i = depths[size - 1];
+            while (i < pattern.length()) {
+                Edge edge = node.isExplicit() ? ((InternalNode) node).getEdge(pattern.charAt(i)) : null;
+                if (edge == null) {
+                    previousMatched = i;
+                    return null;
+                }
+                int end = edge.getEnd().get();
+                for (int j = edge.getStart(); j < end && i < pattern.length(); ++j, ++i) {
+                    if (source.charAt(j) != pattern.charAt(i)) {
+                        previousMatched = i;
+                        return null;
+                    }
+                }
+                node = edge.getTo();
+                if (i == depths[size - 1] + (end - edge.getStart()))
+                    push(node, i);
+            }
+            previousMatched = pattern.length();
+            return node;
+        }
+
+        private void push(Node node, int depth) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                depths = Arrays.copyOf(depths, size * 2);
+            }
+            nodes[size] = node;
+            depths[size++] = depth;
+        }
+
+        private static int commonPrefix(CharSequence a, CharSequence b) {
+            int length = Math.min(a.length(), b.length());
+            int i = 0;
+            while (i < length && a.charAt(i) == b.charAt(i))
+                ++i;
+            return i;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+//Construction and query throughput benchmarks.
+//Usage: java -Xss64m -Xmx<heap> Benchmark [--sizes 1000,10000,...] [--families random2,fibonacci,...]
+//                                         [--impls tree,compact] [--warmup N] [--iterations N]
+public class Benchmark {
+    private static final long[] DEFAULT_SIZES = {1_000, 10_000, 100_000, 1_000_000, 10_000_000, 100_000_000};
+    private static final String[] DEFAULT_FAMILIES = {"random2", "random4", "random26", "random256", "fibonacci", "run", "dna"};
+    private static final String[] DEFAULT_IMPLS = {"tree", "compact"};
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) {
+        long[] sizes = DEFAULT_SIZES;
+        String[] families = DEFAULT_FAMILIES;
+        String[] impls = DEFAULT_IMPLS;
+        int warmup = 2;
+        int iterations = 5;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--sizes":
+                    sizes = Arrays.stream(args[i + 1].split(",")).mapToLong(Long::parseLong).toArray();
+                    break;
+                case "--families":
+                    families = args[i + 1].split(",");
+                    break;
+                case "--impls":
+                    impls = args[i + 1].split(",");
+                    break;
+                case "--warmup":
+                    warmup = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--iterations":
+                    iterations = Integer.parseInt(args[i + 1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        System.out.printf("%-10s %-8s %12s %-22s %12s %14s %8s %10s%n",
+                "family", "impl", "size", "benchmark", "ns/char", "alloc B/char", "gc", "gc ms");
+        for (String family : families) {
+            for (String impl : impls) {
+                for (long size : sizes) {
+                    try {
+                        String text = generate(family, (int) size);
+                        run(family, impl, text, warmup, iterations);
+                    } catch (OutOfMemoryError | StackOverflowError e) {
+                        System.out.printf("%-10s %-8s %12d %-22s%n", family, impl, size,
+                                e.getClass().getSimpleName() + ", skipping larger sizes");
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    private static void run(String family, String impl, String text, int warmup, int iterations) {
+        switch (impl) {
+            case "tree":
+                measure(family, impl, text, warmup, iterations, SuffixTree::new,
+                        SuffixTree::getNDistinctSubstrings, SuffixTree::getInternalNodeDepth);
+                break;
+            case "compact":
+                measure(family, impl, text, warmup, iterations, CompactSuffixTree::new,
+                        CompactSuffixTree::getNDistinctSubstrings, CompactSuffixTree::getInternalNodeDepth);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown implementation " + impl);
+        }
+    }
+
+    private static <T> void measure(String family, String impl, String text, int warmup, int iterations,
+                                    Function<String, T> construct,
+                                    ToLongFunction<T> nDistinctSubstrings,
+                                    ToLongFunction<T> internalNodeDepth) {
+        Sample construction = new Sample();
+        Sample distinct = new Sample();
+        Sample depth = new Sample();
+        long blackhole = 0;
+        for (int i = 0; i < warmup + iterations; ++i) {
+            boolean record = i >= warmup;
+            construction.begin();
+            T tree = construct.apply(text);
+            construction.end(record);
+
+            distinct.begin();
+            blackhole += nDistinctSubstrings.applyAsLong(tree);
+            distinct.end(record);
+
+            depth.begin();
+            blackhole += internalNodeDepth.applyAsLong(tree);
+            depth.end(record);
+        }
+        construction.print(family, impl, text.length(), "construction", iterations);
+        distinct.print(family, impl, text.length(), "getNDistinctSubstrings", iterations);
+        depth.print(family, impl, text.length(), "getInternalNodeDepth", iterations);
+        if (blackhole == 42)
+            System.out.println();
+    }
+
+    public static String generate(String family, int size) {
+        Random random = new Random(size);
+        switch (family) {
+            case "random2":
+                return random(random, size, 2);
+            case "random4":
+                return random(random, size, 4);
+            case "random26":
+                return random(random, size, 26);
+            case "random256":
+                return random(random, size, 256);
+            case "fibonacci":
+                return fibonacci(size);
+            case "run":
+                return "a".repeat(size);
+            case "dna":
+                return dna(random, size);
+            default:
+                throw new IllegalArgumentException("Unknown input family " + family);
+        }
+    }
+
+    private static String random(Random random, int size, int alphabetSize) {
+        char base = alphabetSize <= 26 ? 'a' : '\0';
+        char[] chars = new char[size];
+        for (int i = 0; i < size; ++i)
+            chars[i] = (char) (base + random.nextInt(alphabetSize));
+        return new String(chars);
+    }
+
+    private static String fibonacci(int size) {
+        StringBuilder previous = new StringBuilder("a");
+        StringBuilder current = new StringBuilder("ab");
+        while (current.length() < size) {
+            StringBuilder next = new StringBuilder(current).append(previous);
+            previous = current;
+            current = next;
+        }
+        return current.substring(0, size);
+    }
+
+    //Random ACGT background with mutated copies of earlier segments, approximating genomic repeats
+    private static String dna(Random random, int size) {
+        String bases = "ACGT";
+        char[] chars = new char[size];
+        int i = 0;
+        while (i < size) {
+            if (i > 1_000 && random.nextInt(4) == 0) {
+                int length = Math.min(size - i, 50 + random.nextInt(2_000));
+                int from = random.nextInt(i - length > 0 ? i - length : i);
+                for (int j = 0; j < length; ++j, ++i)
+                    chars[i] = random.nextInt(100) == 0 ? bases.charAt(random.nextInt(4)) : chars[from + j];
+            } else {
+                int length = Math.min(size - i, 100 + random.nextInt(1_000));
+                for (int j = 0; j < length; ++j, ++i)
+                    chars[i] = bases.charAt(random.nextInt(4));
+            }
+        }
+        return new String(chars);
+    }
+
+    private static class Sample {
+        private final List<Long> nanos = new ArrayList<>();
+        private final List<Long> allocated = new ArrayList<>();
+        private long gcCount;
+        private long gcMillis;
+
+        private long startNanos;
+        private long startAllocated;
+        private long startGcCount;
+        private long startGcMillis;
+
+        private void begin() {
+            startGcCount = gcCount();
+            startGcMillis = gcMillis();
+            startAllocated = THREADS.getCurrentThreadAllocatedBytes();
+            startNanos = System.nanoTime();
+        }
+
+        private void end(boolean record) {
+            long elapsed = System.nanoTime() - startNanos;
+            long bytes = THREADS.getCurrentThreadAllocatedBytes() - startAllocated;
+            if (!record)
+                return;
+            nanos.add(elapsed);
+            allocated.add(bytes);
+            gcCount += gcCount() - startGcCount;
+            gcMillis += gcMillis() - startGcMillis;
+        }
+
+        private void print(String family, String impl, int size, String benchmark, int iterations) {
+            double nsPerChar = nanos.stream().mapToLong(Long::longValue).average().orElse(0) / size;
+            double bytesPerChar = allocated.stream().mapToLong(Long::longValue).average().orElse(0) / size;
+            System.out.printf("%-10s %-8s %12d %-22s %12.2f %14.2f %8.1f %10.1f%n",
+                    family, impl, size, benchmark, nsPerChar, bytesPerChar,
+                    (double) gcCount / iterations, (double) gcMillis / iterations);
+        }
+
+        private static long gcCount() {
+            long count = 0;
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+                count += Math.max(0, gc.getCollectionCount());
+            return count;
+        }
+
+        private static long gcMillis() {
+            long millis = 0;
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+                millis += Math.max(0, gc.getCollectionTime());
+            return millis;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+import java.nio.charset.StandardCharsets;
+
+//Read-only CharSequence over a byte[], one Latin-1 char per byte. Holds byte data (e.g. genomes or binary
+//files) in half the memory of a String's UTF-16 fallback and without decoding it first.
+public class ByteText implements CharSequence {
+    private final byte[] bytes;
+    private final int from;
+    private final int to;
+
+    public ByteText(byte[] bytes) {
+        this(bytes, 0, bytes.length);
+    }
+
+    public ByteText(byte[] bytes, int from, int to) {
+        if (from < 0 || to > bytes.length || from > to)
+            throw new IndexOutOfBoundsException("[" + from + ", " + to + ") out of bounds for length " + bytes.length);
+        this.bytes = bytes;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    public int length() {
+        return to - from;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= to - from)
+            throw new IndexOutOfBoundsException(index);
+        return (char) (bytes[from + index] & 0xFF);
+    }
+
+    @Override
+    public ByteText subSequence(int start, int end) {
+        if (start < 0 || end > to - from || start > end)
+            throw new IndexOutOfBoundsException("[" + start + ", " + end + ") out of bounds for length " + length());
+        return new ByteText(bytes, from + start, from + end);
+    }
+
+    @Override
+    public String toString() {
+        return new String(bytes, from, to - from, StandardCharsets.ISO_8859_1);
+    }
+}
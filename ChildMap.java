@@ -0,0 +1,16 @@
+//Outgoing edges of an InternalNode, keyed by the first char of their label. Implementations trade memory for
+//lookup speed; put may return a different (larger) representation, which the caller must keep.
+public interface ChildMap {
+    Edge get(char c);
+
+    ChildMap put(char c, Edge edge);
+
+    int size();
+
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+
+    //Iterates the edges in increasing key order, so a DFS over the tree visits suffixes lexicographically
+    Iterable<Edge> values();
+}
@@ -0,0 +1,268 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+public class CompactSuffixTree {
+    static final int ROOT = 0;
+    static final int LEAF = -1;
+    static final long EMPTY = -1L;
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    private CharSequence source;
+    private int size;
+
+    //Node i is reached from its parent by the edge source[start[i], end[i]); leaves use LEAF as their end
+    private int[] start;
+    private int[] end;
+    private int[] suffixLink;
+    private int[] depth;
+    private int nodeCount;
+
+    //Open-addressed (parent, first char) -> child table
+    private long[] childKeys;
+    private int[] children;
+    private int childCount;
+    private int hashBits;
+
+    private int activeNode;
+    private int activeEdge;
+    private int activeLength;
+    private int remainder;
+
+    //Builds a suffix tree using Ukkonen's Algorithm, storing nodes in parallel int arrays
+    public CompactSuffixTree(CharSequence source) {
+        this.source = source;
+        int capacity = Math.max(16, source.length() + (source.length() >> 1));
+        start = new int[capacity];
+        end = new int[capacity];
+        suffixLink = new int[capacity];
+        depth = new int[capacity];
+        hashBits = Math.max(4, 64 - Long.numberOfLeadingZeros(capacity * 4L / 3));
+        childKeys = new long[1 << hashBits];
+        Arrays.fill(childKeys, EMPTY);
+        children = new int[1 << hashBits];
+
+        newNode(0, 0, 0);
+        activeNode = ROOT;
+        activeEdge = 0;
+        activeLength = 0;
+        remainder = 0;
+
+        for (int i = 0; i < source.length(); ++i)
+            extend(i);
+    }
+
+    public long getNDistinctSubstrings() {
+        long sum = 0;
+        for (int node = 1; node < nodeCount; ++node)
+            sum += edgeLength(node);
+        return sum + 1;
+    }
+
+    public int getInternalNodeDepth() {
+        int max = 0;
+        for (int node = 1; node < nodeCount; ++node)
+            if (end[node] != LEAF && depth[node] > max)
+                max = depth[node];
+        return max;
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public boolean contains(CharSequence pattern) {
+        int node = ROOT;
+        int i = 0;
+        while (i < pattern.length()) {
+            node = getChild(node, pattern.charAt(i));
+            if (node == ROOT)
+                return false;
+            int edgeEnd = start[node] + edgeLength(node);
+            for (int j = start[node]; j < edgeEnd && i < pattern.length(); ++j, ++i)
+                if (source.charAt(j) != pattern.charAt(i))
+                    return false;
+        }
+        return true;
+    }
+
+    //Writes the tree in the MappedSuffixTree file format, so it can be reopened without rebuilding
+    public void save(Path path) throws IOException {
+        boolean byteText = true;
+        for (int i = 0; i < size && byteText; ++i)
+            byteText = source.charAt(i) <= 0xFF;
+        long distinct = getNDistinctSubstrings();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MappedSuffixTree.MAGIC);
+            buffer.putInt(MappedSuffixTree.VERSION);
+            buffer.putInt(byteText ? MappedSuffixTree.BYTE_TEXT : 0);
+            buffer.putInt(size);
+            buffer.putInt(nodeCount);
+            buffer.putInt(hashBits);
+            buffer.putLong(distinct);
+            buffer.putInt(getInternalNodeDepth());
+            buffer.putInt(0);
+            for (long key : childKeys)
+                buffer = put(channel, buffer, 8).putLong(key);
+            for (int child : children)
+                buffer = put(channel, buffer, 4).putInt(child);
+            for (int[] array : new int[][]{start, end, suffixLink, depth})
+                for (int node = 0; node < nodeCount; ++node)
+                    buffer = put(channel, buffer, 4).putInt(array[node]);
+            for (int i = 0; i < size; ++i) {
+                if (byteText)
+                    buffer = put(channel, buffer, 1).put((byte) source.charAt(i));
+                else
+                    buffer = put(channel, buffer, 2).putChar(source.charAt(i));
+            }
+            buffer.flip();
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+        }
+    }
+
+    //Flushes the buffer to the channel if it has no room for the next value
+    private static ByteBuffer put(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            buffer.flip();
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            buffer.clear();
+        }
+        return buffer;
+    }
+
+    private void extend(int index) {
+        size = index + 1;
+        char lastChar = source.charAt(index);
+        int previousNode = ROOT;
+        ++remainder;
+        while (remainder > 0) {
+            if (activeLength == 0)
+                activeEdge = index;
+            char edgeChar = source.charAt(activeEdge);
+            int next = getChild(activeNode, edgeChar);
+            if (next == ROOT) {
+                //Case 1: no edge starts with this char, so hang a new leaf directly off the active node
+                putChild(activeNode, edgeChar, newNode(index, LEAF, 0));
+                if (previousNode != ROOT)
+                    suffixLink[previousNode] = activeNode;
+                previousNode = ROOT;
+            } else {
+                int length = edgeLength(next);
+                if (activeLength >= length) {
+                    //Skip/count down to the next node
+                    activeEdge += length;
+                    activeLength -= length;
+                    activeNode = next;
+                    continue;
+                }
+                if (source.charAt(start[next] + activeLength) == lastChar) {
+                    //Case 2: lastChar is already present along the edge, so the phase ends here
+                    if (previousNode != ROOT && activeNode != ROOT)
+                        suffixLink[previousNode] = activeNode;
+                    ++activeLength;
+                    break;
+                }
+                //Case 3: split the edge and hang a new leaf off the split point
+                int split = newNode(start[next], start[next] + activeLength, depth[activeNode] + activeLength);
+                putChild(activeNode, edgeChar, split);
+                putChild(split, lastChar, newNode(index, LEAF, 0));
+                start[next] += activeLength;
+                putChild(split, source.charAt(start[next]), next);
+                if (previousNode != ROOT)
+                    suffixLink[previousNode] = split;
+                previousNode = split;
+            }
+            --remainder;
+            if (activeNode == ROOT && activeLength > 0) {
+                --activeLength;
+                activeEdge = index - remainder + 1;
+            } else if (activeNode != ROOT) {
+                activeNode = suffixLink[activeNode];
+            }
+        }
+    }
+
+    private int edgeLength(int node) {
+        return (end[node] == LEAF ? size : end[node]) - start[node];
+    }
+
+    private int newNode(int edgeStart, int edgeEnd, int stringDepth) {
+        if (nodeCount == start.length) {
+            int capacity = start.length + (start.length >> 1);
+            start = Arrays.copyOf(start, capacity);
+            end = Arrays.copyOf(end, capacity);
+            suffixLink = Arrays.copyOf(suffixLink, capacity);
+            depth = Arrays.copyOf(depth, capacity);
+        }
+        start[nodeCount] = edgeStart;
+        end[nodeCount] = edgeEnd;
+        suffixLink[nodeCount] = ROOT;
+        depth[nodeCount] = stringDepth;
+        return nodeCount++;
+    }
+
+    static long childKey(int node, char c) {
+        return ((long) node << 16) | c;
+    }
+
+    static int slot(long key, int hashBits) {
+        return (int) ((key * HASH_MULTIPLIER) >>> (64 - hashBits));
+    }
+
+    //Returns ROOT when there is no such child, since the root is never anyone's child
+    private int getChild(int node, char c) {
+        long key = childKey(node, c);
+        int mask = childKeys.length - 1;
+        for (int i = slot(key, hashBits); ; i = (i + 1) & mask) {
+            if (childKeys[i] == key)
+                return children[i];
+            if (childKeys[i] == EMPTY)
+                return ROOT;
+        }
+    }
+
+    private void putChild(int node, char c, int child) {
+        long key = childKey(node, c);
+        int mask = childKeys.length - 1;
+        int i = slot(key, hashBits);
+        while (childKeys[i] != EMPTY && childKeys[i] != key)
+            i = (i + 1) & mask;
+        if (childKeys[i] == EMPTY) {
+            childKeys[i] = key;
+            if (++childCount > (childKeys.length >> 2) * 3) {
+                children[i] = child;
+                rehash();
+                return;
+            }
+        }
+        children[i] = child;
+    }
+
+    private void rehash() {
+        long[] oldKeys = childKeys;
+        int[] oldChildren = children;
+        ++hashBits;
+        childKeys = new long[1 << hashBits];
+        Arrays.fill(childKeys, EMPTY);
+        children = new int[1 << hashBits];
+        int mask = childKeys.length - 1;
+        for (int j = 0; j < oldKeys.length; ++j) {
+            if (oldKeys[j] == EMPTY)
+                continue;
+            int i = slot(oldKeys[j], hashBits);
+            while (childKeys[i] != EMPTY)
+                i = (i + 1) & mask;
+            childKeys[i] = oldKeys[j];
+            children[i] = oldChildren[j];
+        }
+    }
+}
@@ -0,0 +1,21 @@
+//Receives construction events from a SuffixTree built or appended to with a listener. Every method defaults to a
+//no-op, so implementations only override what they watch. A tree without a listener pays one null check per
+//event site.
+public interface ConstructionListener {
+    default void onLeafCreated() {
+    }
+
+    default void onEdgeSplit() {
+    }
+
+    default void onSuffixLinkFollowed() {
+    }
+
+    //The active point skipped over a whole edge while walking down (skip/count)
+    default void onWalkDownHop() {
+    }
+
+    //Called after every char is added, with the text length and the number of suffixes left implicit
+    default void onPhaseEnd(int length, int remainder) {
+    }
+}
@@ -0,0 +1,111 @@
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+//Counts construction events for one tree and times every million chars. Written by the building thread only;
+//readers on other threads (e.g. over JMX) may see slightly stale values.
+public class ConstructionMetrics implements ConstructionListener, ConstructionMetricsMXBean {
+    private static final int CHARS_PER_SAMPLE = 1_000_000;
+
+    private long leavesCreated;
+    private long edgeSplits;
+    private long suffixLinkTraversals;
+    private long walkDownHops;
+    private int maxRemainder;
+    private long charsProcessed;
+    private long[] nanosPerMillionChars = new long[0];
+    private long sampleStart = -1;
+
+    //Registers these metrics with the platform MBean server as SuffixTreeGenerator:type=ConstructionMetrics,name=name
+    public ObjectName register(String name) throws JMException {
+        ObjectName objectName = new ObjectName("SuffixTreeGenerator:type=ConstructionMetrics,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    @Override
+    public void onLeafCreated() {
+        ++leavesCreated;
+    }
+
+    @Override
+    public void onEdgeSplit() {
+        ++edgeSplits;
+    }
+
+    @Override
+    public void onSuffixLinkFollowed() {
+        ++suffixLinkTraversals;
+    }
+
+    @Override
+    public void onWalkDownHop() {
+        ++walkDownHops;
+    }
+
+    @Override
+    public void onPhaseEnd(int length, int remainder) {
+        long now = System.nanoTime();
+        if (sampleStart < 0)
+            sampleStart = now;
+        ++charsProcessed;
+        if (remainder > maxRemainder)
+            maxRemainder = remainder;
+        if (charsProcessed % CHARS_PER_SAMPLE == 0) {
+            nanosPerMillionChars = Arrays.copyOf(nanosPerMillionChars, nanosPerMillionChars.length + 1);
+            nanosPerMillionChars[nanosPerMillionChars.length - 1] = now - sampleStart;
+            sampleStart = now;
+        }
+    }
+
+    @Override
+    public long getLeavesCreated() {
+        return leavesCreated;
+    }
+
+    @Override
+    public long getEdgeSplits() {
+        return edgeSplits;
+    }
+
+    @Override
+    public long getSuffixLinkTraversals() {
+        return suffixLinkTraversals;
+    }
+
+    @Override
+    public long getWalkDownHops() {
+        return walkDownHops;
+    }
+
+    @Override
+    public int getMaxRemainder() {
+        return maxRemainder;
+    }
+
+    //Nodes are never removed, so the peak is the root plus every leaf and split node created
+    @Override
+    public long getPeakNodeCount() {
+        return 1 + leavesCreated + edgeSplits;
+    }
+
+    @Override
+    public long getCharsProcessed() {
+        return charsProcessed;
+    }
+
+    //Wall time of each complete million chars, in order
+    @Override
+    public long[] getNanosPerMillionChars() {
+        return nanosPerMillionChars.clone();
+    }
+
+    @Override
+    public String toString() {
+        return "chars=" + charsProcessed + " leaves=" + leavesCreated + " splits=" + edgeSplits
+                + " suffixLinks=" + suffixLinkTraversals + " walkDownHops=" + walkDownHops
+                + " maxRemainder=" + maxRemainder + " peakNodes=" + getPeakNodeCount()
+                + " nsPerMillionChars=" + Arrays.toString(nanosPerMillionChars);
+    }
+}
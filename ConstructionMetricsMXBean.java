@@ -0,0 +1,18 @@
+//JMX view of a ConstructionMetrics, see ConstructionMetrics.register
+public interface ConstructionMetricsMXBean {
+    long getLeavesCreated();
+
+    long getEdgeSplits();
+
+    long getSuffixLinkTraversals();
+
+    long getWalkDownHops();
+
+    int getMaxRemainder();
+
+    long getPeakNodeCount();
+
+    long getCharsProcessed();
+
+    long[] getNanosPerMillionChars();
+}
@@ -0,0 +1,12 @@
+public class DocumentLeafNode extends LeafNode {
+    private int documentId;
+
+    public DocumentLeafNode(int documentId, int offset) {
+        super(offset);
+        this.documentId = documentId;
+    }
+
+    public int getDocumentId() {
+        return documentId;
+    }
+}
@@ -0,0 +1,30 @@
+import java.util.ArrayList;
+import java.util.List;
+
+public class DocumentNode extends InternalNode {
+    //Leaves for document suffixes that end exactly at this node
+    private List<DocumentLeafNode> terminals;
+    private int documentCount;
+
+    public DocumentNode() {
+        super();
+    }
+
+    public List<DocumentLeafNode> getTerminals() {
+        return terminals == null ? List.of() : terminals;
+    }
+
+    public void addTerminal(DocumentLeafNode leaf) {
+        if (terminals == null)
+            terminals = new ArrayList<>(2);
+        terminals.add(leaf);
+    }
+
+    public int getDocumentCount() {
+        return documentCount;
+    }
+
+    public void setDocumentCount(int documentCount) {
+        this.documentCount = documentCount;
+    }
+}
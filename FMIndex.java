@@ -0,0 +1,201 @@
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+//Compressed full-text index: the Burrows-Wheeler transform of the text in a wavelet matrix, plus every
+//sampleRate-th suffix array entry. Takes about (log2(alphabet size + 1) + 1 + 32 / sampleRate) * 1.06 bits per
+//char, against tens of bytes for a SuffixTree; counting costs O(|pattern| log(alphabet size)) and locating
+//each occurrence another O(sampleRate log(alphabet size)). The text itself is not kept.
+//
+//Building needs up to about 28 bytes per char of temporary arrays (a suffix array by prefix doubling, in
+//O(n log n)), all released once the index is built.
+public class FMIndex implements SubstringIndex {
+    public static final int DEFAULT_SAMPLE_RATE = 32;
+
+    private final int length;
+    private final Alphabet alphabet;
+    //Row r of the sorted rotations of text + sentinel; the sentinel is code 0 and char c is rank(c) + 1
+    private final WaveletMatrix bwt;
+    //counts[c] = number of codes smaller than c in the text + sentinel
+    private final int[] counts;
+    private final RankBitVector sampled;
+    private final int[] samples;
+    private final int sampleRate;
+    private final long nDistinctSubstrings;
+
+    public FMIndex(CharSequence text) {
+        this(text, DEFAULT_SAMPLE_RATE);
+    }
+
+    public FMIndex(CharSequence text, int sampleRate) {
+        if (sampleRate < 1)
+            throw new IllegalArgumentException("sampleRate must be positive, got " + sampleRate);
+        if (text.length() == Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Text too long for an int-indexed FMIndex");
+        this.length = text.length();
+        this.sampleRate = sampleRate;
+        alphabet = Alphabet.of(text);
+
+        int rows = length + 1;
+        int[] codes = new int[rows];
+        for (int i = 0; i < length; ++i)
+            codes[i] = alphabet.rank(text.charAt(i)) + 1;
+        int[] inverse = new int[rows];
+        int[] suffixArray = buildSuffixArray(codes, alphabet.size() + 1, inverse);
+        nDistinctSubstrings = (long) length * (length + 1) / 2 + 1 - lcpSum(codes, suffixArray, inverse);
+
+        counts = new int[alphabet.size() + 2];
+        for (int code : codes)
+            ++counts[code + 1];
+        for (int c = 1; c < counts.length; ++c)
+            counts[c] += counts[c - 1];
+
+        long[] sampledWords = RankBitVector.newWords(rows);
+        int sampleCount = 0;
+        for (int r = 0; r < rows; ++r) {
+            if (suffixArray[r] % sampleRate == 0) {
+                sampledWords[r >>> 6] |= 1L << r;
+                ++sampleCount;
+            }
+        }
+        sampled = new RankBitVector(sampledWords, rows);
+        samples = new int[sampleCount];
+        //inverse is no longer needed, so it holds the BWT codes
+        int[] transform = inverse;
+        for (int r = 0, s = 0; r < rows; ++r) {
+            if (suffixArray[r] % sampleRate == 0)
+                samples[s++] = suffixArray[r];
+            transform[r] = suffixArray[r] == 0 ? 0 : codes[suffixArray[r] - 1];
+        }
+        bwt = new WaveletMatrix(transform, Math.max(1, 32 - Integer.numberOfLeadingZeros(alphabet.size())));
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public boolean contains(CharSequence pattern) {
+        return pattern.length() == 0 || countOccurrences(pattern) > 0;
+    }
+
+    @Override
+    public int countOccurrences(CharSequence pattern) {
+        if (pattern.length() == 0)
+            return length;
+        long range = rowRange(pattern);
+        return (int) range - (int) (range >>> 32);
+    }
+
+    @Override
+    public IntStream findAll(CharSequence pattern) {
+        if (pattern.length() == 0)
+            return IntStream.range(0, length);
+        long range = rowRange(pattern);
+        return IntStream.range((int) (range >>> 32), (int) range).map(this::locate);
+    }
+
+    @Override
+    public long getNDistinctSubstrings() {
+        return nDistinctSubstrings;
+    }
+
+    public long sizeInBytes() {
+        return bwt.sizeInBytes() + sampled.sizeInBytes() + samples.length * 4L + counts.length * 4L;
+    }
+
+    //Backward search: the rows [from, to) of rotations starting with pattern, packed as from << 32 | to
+    private long rowRange(CharSequence pattern) {
+        int from = 0;
+        int to = length + 1;
+        for (int i = pattern.length() - 1; i >= 0 && from < to; --i) {
+            int code = alphabet.rank(pattern.charAt(i)) + 1;
+            if (code == 0)
+                return 0;
+            from = counts[code] + bwt.rank(code, from);
+            to = counts[code] + bwt.rank(code, to);
+        }
+        return from < to ? (long) from << 32 | to : 0;
+    }
+
+    //Steps back through the text with LF-mapping until reaching a sampled suffix
+    private int locate(int row) {
+        int steps = 0;
+        while (!sampled.get(row)) {
+            int code = bwt.access(row);
+            row = counts[code] + bwt.rank(code, row);
+            ++steps;
+        }
+        return samples[sampled.rank1(row)] + steps;
+    }
+
+    //Sorts the suffixes of codes, whose last entry must be a unique smallest 0, by prefix doubling with radix
+    //sorts. Fills inverse with each suffix's row.
+    private static int[] buildSuffixArray(int[] codes, int alphabetSize, int[] inverse) {
+        int n = codes.length;
+        int[] suffixArray = new int[n];
+        int[] rank = inverse;
+        int[] buffer = new int[n];
+        int[] bucket = new int[Math.max(alphabetSize, n) + 1];
+
+        for (int code : codes)
+            ++bucket[code + 1];
+        for (int c = 1; c <= alphabetSize; ++c)
+            bucket[c] += bucket[c - 1];
+        for (int i = 0; i < n; ++i)
+            suffixArray[bucket[codes[i]]++] = i;
+        System.arraycopy(codes, 0, rank, 0, n);
+        int classes = alphabetSize;
+
+        for (int k = 1; ; k <<= 1) {
+            //Order by the second half: suffixes shorter than k first, then the rest in current order
+            int p = 0;
+            for (int i = n - k; i < n; ++i)
+                if (i >= 0)
+                    buffer[p++] = i;
+            for (int r = 0; r < n; ++r)
+                if (suffixArray[r] >= k)
+                    buffer[p++] = suffixArray[r] - k;
+            //Stable counting sort by the first half
+            Arrays.fill(bucket, 0, classes + 1, 0);
+            for (int i = 0; i < n; ++i)
+                ++bucket[rank[i] + 1];
+            for (int c = 1; c <= classes; ++c)
+                bucket[c] += bucket[c - 1];
+            for (int j = 0; j < n; ++j)
+                suffixArray[bucket[rank[buffer[j]]]++] = buffer[j];
+
+            buffer[suffixArray[0]] = 0;
+            classes = 1;
+            for (int r = 1; r < n; ++r) {
+                int a = suffixArray[r - 1];
+                int b = suffixArray[r];
+                boolean same = rank[a] == rank[b] && a + k < n && b + k < n && rank[a + k] == rank[b + k];
+                buffer[b] = same ? classes - 1 : classes++;
+            }
+            System.arraycopy(buffer, 0, rank, 0, n);
+            if (classes == n)
+                return suffixArray;
+        }
+    }
+
+    //Kasai et al.: the sum of the longest common prefixes of adjacent suffixes, in O(n)
+    private static long lcpSum(int[] codes, int[] suffixArray, int[] inverse) {
+        int n = codes.length;
+        long sum = 0;
+        int h = 0;
+        for (int i = 0; i < n; ++i) {
+            if (inverse[i] == 0) {
+                h = 0;
+                continue;
+            }
+            int j = suffixArray[inverse[i] - 1];
+            while (i + h < n && j + h < n && codes[i + h] == codes[j + h])
+                ++h;
+            sum += h;
+            if (h > 0)
+                --h;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,327 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+//Suffix tree over a collection of documents, built incrementally with Ukkonen's Algorithm one document at a
+//time. Each document ends in a virtual terminator of its own that matches nothing, so no separator chars are
+//added to the text: leaves whose label ends at that terminator are either hung off an edge as usual or, when
+//the suffix ends exactly at an internal node, kept in that DocumentNode's terminals.
+public class GeneralizedSuffixTree {
+    public interface OccurrenceConsumer {
+        void accept(int documentId, int offset);
+    }
+
+    private StringBuilder text;
+    private int[] documentStarts;
+    private int documentCount;
+    private RootNode root;
+
+    private InternalNode activeNode;
+    private char activeEdge;
+    private int activeLength;
+    private int remainder;
+    private AtomicInteger endMarker;
+    private boolean annotated;
+
+    public GeneralizedSuffixTree() {
+        text = new StringBuilder();
+        documentStarts = new int[8];
+        root = new RootNode();
+    }
+
+    //Adds a document to the tree and returns its id
+    public int addDocument(CharSequence document) {
+        int documentId = documentCount;
+        if (documentCount + 1 == documentStarts.length)
+            documentStarts = Arrays.copyOf(documentStarts, documentStarts.length * 2);
+        int base = text.length();
+        documentStarts[documentCount] = base;
+        text.append(document);
+        documentStarts[++documentCount] = text.length();
+
+        activeNode = root;
+        activeEdge = '\0';
+        activeLength = 0;
+        remainder = 0;
+        endMarker = new AtomicInteger(base);
+        while (endMarker.get() != text.length()) {
+            ++remainder;
+            update(endMarker.getAndIncrement(), documentId, base);
+        }
+        terminate(documentId, base);
+        annotated = false;
+        return documentId;
+    }
+
+    public int getDocumentCount() {
+        return documentCount;
+    }
+
+    public CharSequence getDocument(int documentId) {
+        return text.subSequence(documentStarts[documentId], documentStarts[documentId + 1]);
+    }
+
+    public boolean contains(CharSequence pattern) {
+        return locate(pattern) != null;
+    }
+
+    //Number of distinct documents containing pattern, in O(|pattern|)
+    public int countDocuments(CharSequence pattern) {
+        Node locus = locate(pattern);
+        if (locus == null)
+            return 0;
+        if (locus.isRoot())
+            return documentCount;
+        annotate();
+        return locus.isLeaf() ? 1 : ((DocumentNode) locus).getDocumentCount();
+    }
+
+    //Ids of the documents containing pattern, in increasing order
+    public IntStream documentsContaining(CharSequence pattern) {
+        Node locus = locate(pattern);
+        if (locus == null)
+            return IntStream.empty();
+        BitSet documents = new BitSet(documentCount);
+        forEachLeaf(locus, leaf -> documents.set(leaf.getDocumentId()));
+        return documents.stream();
+    }
+
+    public void findAll(CharSequence pattern, OccurrenceConsumer consumer) {
+        Node locus = locate(pattern);
+        if (locus != null)
+            forEachLeaf(locus, leaf -> consumer.accept(leaf.getDocumentId(), leaf.getSuffixIndex()));
+    }
+
+    //Longest substring occurring in at least k distinct documents, or "" if there is none
+    public String longestCommonSubstring(int k) {
+        annotate();
+        int bestDepth = 0;
+        int bestEnd = 0;
+        ArrayDeque<Edge> edges = new ArrayDeque<>();
+        ArrayDeque<Integer> depths = new ArrayDeque<>();
+        for (Edge e : root.getEdgesOut().values()) {
+            edges.push(e);
+            depths.push(0);
+        }
+        while (!edges.isEmpty()) {
+            Edge edge = edges.pop();
+            int depth = depths.pop() + edge.getLength();
+            Node to = edge.getTo();
+            int count = to.isLeaf() ? 1 : ((DocumentNode) to).getDocumentCount();
+            if (count < k)
+                continue;
+            if (depth > bestDepth) {
+                bestDepth = depth;
+                bestEnd = edge.getEnd().get();
+            }
+            if (to.isExplicit()) {
+                for (Edge e : ((InternalNode) to).getEdgesOut().values()) {
+                    edges.push(e);
+                    depths.push(depth);
+                }
+            }
+        }
+        return text.substring(bestEnd - bestDepth, bestEnd);
+    }
+
+    private Node locate(CharSequence pattern) {
+        Node node = root;
+        int i = 0;
+        while (i < pattern.length()) {
+            if (!node.isExplicit())
+                return null;
+            Edge edge = ((InternalNode) node).getEdge(pattern.charAt(i));
+            if (edge == null)
+                return null;
+            int end = edge.getEnd().get();
+            for (int j = edge.getStart(); j < end && i < pattern.length(); ++j, ++i)
+                if (text.charAt(j) != pattern.charAt(i))
+                    return null;
+            node = edge.getTo();
+        }
+        return node;
+    }
+
+    private void forEachLeaf(Node locus, Consumer<DocumentLeafNode> action) {
+        ArrayDeque<Node> stack = new ArrayDeque<>();
+        stack.push(locus);
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            if (node.isLeaf()) {
+                action.accept((DocumentLeafNode) node);
+                continue;
+            }
+            if (node instanceof DocumentNode)
+                ((DocumentNode) node).getTerminals().forEach(action);
+            for (Edge e : ((InternalNode) node).getEdgesOut().values())
+                stack.push(e.getTo());
+        }
+    }
+
+    //Sets the distinct-document count of every DocumentNode, merging child document sets bottom-up
+    private void annotate() {
+        if (annotated)
+            return;
+        List<DocumentNode> preorder = new ArrayList<>();
+        ArrayDeque<InternalNode> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            InternalNode iNode = stack.pop();
+            if (!iNode.isRoot())
+                preorder.add((DocumentNode) iNode);
+            for (Edge e : iNode.getEdgesOut().values())
+                if (e.getTo().isExplicit())
+                    stack.push((InternalNode) e.getTo());
+        }
+        IdentityHashMap<DocumentNode, BitSet> pending = new IdentityHashMap<>();
+        for (int i = preorder.size() - 1; i >= 0; --i) {
+            DocumentNode node = preorder.get(i);
+            BitSet documents = new BitSet();
+            for (DocumentLeafNode leaf : node.getTerminals())
+                documents.set(leaf.getDocumentId());
+            for (Edge e : node.getEdgesOut().values()) {
+                if (e.getTo().isLeaf())
+                    documents.set(((DocumentLeafNode) e.getTo()).getDocumentId());
+                else
+                    documents.or(pending.remove((DocumentNode) e.getTo()));
+            }
+            node.setDocumentCount(documents.cardinality());
+            pending.put(node, documents);
+        }
+        annotated = true;
+    }
+
+    private void update(int index, int documentId, int base) {
+        char lastChar = text.charAt(index);
+        InternalNode previousNode = null;
+        while (true) {
+            if (activeLength == 0) {
+                //Case 1: lastChar is already present in this node, so just update active point
+                if (activeNode.hasEdge(lastChar)) {
+                    if (previousNode != null)
+                        previousNode.setSuffixLink(activeNode);
+                    ++activeLength;
+                    activeEdge = lastChar;
+                    walkDown(index);
+                    return;
+                }
+                //Case 2: directly insert new edge into node, terminating in a leaf
+                DocumentLeafNode leaf = new DocumentLeafNode(documentId, index - remainder + 1 - base);
+                activeNode.addEdgeOut(lastChar, new Edge(activeNode, leaf, index, endMarker));
+                InternalNode fromNode = activeNode;
+                --remainder;
+                applyRules(index, previousNode, activeNode);
+                previousNode = fromNode.isRoot() ? null : fromNode;
+            } else {
+                Edge aEdge = activeNode.getEdge(activeEdge);
+                int pos = aEdge.getStart() + activeLength;
+                //Case 1: this next point matches lastChar, so just update activeLength
+                if (!atTerminator(aEdge, pos) && text.charAt(pos) == lastChar) {
+                    if (previousNode != null)
+                        previousNode.setSuffixLink(activeNode);
+                    ++activeLength;
+                    walkDown(index);
+                    return;
+                }
+                //Case 2: this edge needs to be split at this point
+                DocumentNode iNode = split(aEdge, pos);
+                DocumentLeafNode leaf = new DocumentLeafNode(documentId, index - remainder + 1 - base);
+                iNode.addEdgeOut(lastChar, new Edge(iNode, leaf, index, endMarker));
+                --remainder;
+                applyRules(index, previousNode, iNode);
+                walkDown(index);
+                previousNode = iNode;
+            }
+            if (remainder == 0)
+                return;
+        }
+    }
+
+    //Runs the phase for the document's virtual terminator, which turns every pending suffix into a leaf
+    private void terminate(int documentId, int base) {
+        int index = text.length();
+        InternalNode previousNode = null;
+        ++remainder;
+        while (remainder > 1 || activeLength > 0) {
+            DocumentLeafNode leaf = new DocumentLeafNode(documentId, index - remainder + 1 - base);
+            if (activeLength == 0) {
+                ((DocumentNode) activeNode).addTerminal(leaf);
+                InternalNode fromNode = activeNode;
+                --remainder;
+                applyRules(index, previousNode, activeNode);
+                previousNode = fromNode.isRoot() ? null : fromNode;
+            } else {
+                Edge aEdge = activeNode.getEdge(activeEdge);
+                DocumentNode iNode = split(aEdge, aEdge.getStart() + activeLength);
+                iNode.addTerminal(leaf);
+                --remainder;
+                applyRules(index, previousNode, iNode);
+                walkDown(index);
+                previousNode = iNode;
+            }
+        }
+        //Only the empty suffix is left, which ends at root
+        if (previousNode != null)
+            previousNode.setSuffixLink(root);
+        remainder = 0;
+    }
+
+    private DocumentNode split(Edge aEdge, int pos) {
+        DocumentNode iNode = new DocumentNode();
+        if (atTerminator(aEdge, pos))
+            iNode.addTerminal((DocumentLeafNode) aEdge.getTo());
+        else
+            iNode.addEdgeOut(text.charAt(pos), new Edge(iNode, aEdge.getTo(), pos, aEdge.getEnd()));
+        aEdge.setEnd(new AtomicInteger(pos));
+        aEdge.setTo(iNode);
+        return iNode;
+    }
+
+    //Leaves of earlier documents have stopped growing and end in their document's terminator
+    private boolean atTerminator(Edge edge, int pos) {
+        return edge.getTo().isLeaf() && edge.getEnd() != endMarker && pos == edge.getEnd().get();
+    }
+
+    private int span(Edge edge) {
+        return edge.getTo().isLeaf() && edge.getEnd() != endMarker ? edge.getLength() + 1 : edge.getLength();
+    }
+
+    private void applyRules(int index, InternalNode previousNode, InternalNode iNode) {
+        //Rule 1: an insertion at root shortens the active point by one
+        if (activeNode.isRoot() && activeLength > 0) {
+            --activeLength;
+            if (activeLength > 0)
+                activeEdge = text.charAt(index - activeLength);
+        }
+        //Rule 2: link the previously inserted node to this one
+        if (previousNode != null)
+            previousNode.setSuffixLink(iNode);
+        //Rule 3: follow the suffix link, falling back to root
+        if (!activeNode.isRoot()) {
+            if (activeNode.hasSuffixLink())
+                activeNode = activeNode.getSuffixLink();
+            else
+                activeNode = root;
+        }
+    }
+
+    private void walkDown(int index) {
+        if (activeLength == 0)
+            return;
+        Edge aEdge = activeNode.getEdge(activeEdge);
+        while (aEdge != null && activeLength >= span(aEdge)) {
+            activeNode = (InternalNode) aEdge.getTo();
+            activeLength -= aEdge.getLength();
+            if (activeLength == 0)
+                return;
+            activeEdge = text.charAt(index - activeLength);
+            aEdge = activeNode.getEdge(activeEdge);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+//Open-addressed char -> edge table with linear probing, for nodes with many children
+public class HashChildMap implements ChildMap {
+    private char[] keys;
+    private Edge[] edges;
+    private int size;
+
+    public HashChildMap() {
+        keys = new char[64];
+        edges = new Edge[64];
+    }
+
+    @Override
+    public Edge get(char c) {
+        int mask = keys.length - 1;
+        for (int i = slot(c, mask); edges[i] != null; i = (i + 1) & mask)
+            if (keys[i] == c)
+                return edges[i];
+        return null;
+    }
+
+    @Override
+    public ChildMap put(char c, Edge edge) {
+        int mask = keys.length - 1;
+        int i = slot(c, mask);
+        while (edges[i] != null && keys[i] != c)
+            i = (i + 1) & mask;
+        if (edges[i] == null && ++size * 2 > keys.length) {
+            rehash();
+            return put(c, edge);
+        }
+        keys[i] = c;
+        edges[i] = edge;
+        return this;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    //Slots are in hash order, so the keys are gathered and sorted first; wide nodes are rare enough for the
+    //O(k log k) per iteration not to matter
+    @Override
+    public Iterable<Edge> values() {
+        return () -> {
+            char[] sorted = new char[size];
+            int k = 0;
+            for (int i = 0; i < keys.length; ++i)
+                if (edges[i] != null)
+                    sorted[k++] = keys[i];
+            Arrays.sort(sorted);
+            return new Iterator<>() {
+                private int next = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return next < sorted.length;
+                }
+
+                @Override
+                public Edge next() {
+                    if (next >= sorted.length)
+                        throw new NoSuchElementException();
+                    return get(sorted[next++]);
+                }
+            };
+        };
+    }
+
+    private static int slot(char c, int mask) {
+        return Integer.rotateLeft(c * 0x9E3779B1, 16) & mask;
+    }
+
+    private void rehash() {
+        char[] oldKeys = keys;
+        Edge[] oldEdges = edges;
+        keys = new char[oldKeys.length * 2];
+        edges = new Edge[oldKeys.length * 2];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; ++i)
+            if (oldEdges[i] != null)
+                put(oldKeys[i], oldEdges[i]);
+    }
+}
@@ -0,0 +1,76 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+//One slot per alphabet char, looked up by rank with no search or hashing. Meant for tiny alphabets such as
+//DNA; a char outside the alphabet (e.g. appended later) converts the node to a SortedChildMap.
+public class IndexedChildMap implements ChildMap {
+    private final Alphabet alphabet;
+    private final Edge[] edges;
+    private int size;
+
+    public IndexedChildMap(Alphabet alphabet) {
+        this.alphabet = alphabet;
+        this.edges = new Edge[alphabet.size()];
+    }
+
+    @Override
+    public Edge get(char c) {
+        int rank = alphabet.rank(c);
+        return rank >= 0 ? edges[rank] : null;
+    }
+
+    @Override
+    public ChildMap put(char c, Edge edge) {
+        int rank = alphabet.rank(c);
+        if (rank < 0) {
+            ChildMap wide = new SortedChildMap();
+            for (int i = 0; i < alphabet.size(); ++i)
+                if (edges[i] != null)
+                    wide = wide.put(charAt(i), edges[i]);
+            return wide.put(c, edge);
+        }
+        if (edges[rank] == null)
+            ++size;
+        edges[rank] = edge;
+        return this;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterable<Edge> values() {
+        return () -> new Iterator<>() {
+            private int next = advance(0);
+
+            @Override
+            public boolean hasNext() {
+                return next < edges.length;
+            }
+
+            @Override
+            public Edge next() {
+                if (next >= edges.length)
+                    throw new NoSuchElementException();
+                Edge edge = edges[next];
+                next = advance(next + 1);
+                return edge;
+            }
+
+            private int advance(int i) {
+                while (i < edges.length && edges[i] == null)
+                    ++i;
+                return i;
+            }
+        };
+    }
+
+    //The first char of the edge in slot rank
+    private char charAt(int rank) {
+        for (char c = 0; ; ++c)
+            if (alphabet.rank(c) == rank)
+                return c;
+    }
+}
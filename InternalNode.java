@@ -1,12 +1,15 @@
-import java.util.LinkedHashMap;
-
 public class InternalNode extends Node {
-    private LinkedHashMap<Character, Edge> edgesOut;
+    private ChildMap edgesOut;
     private InternalNode suffixLink = null;
+    private int leafCount;
+    private int firstOccurrence;
 
     public InternalNode() {
-        generateCreationNumber();
-        edgesOut = new LinkedHashMap<>();
+        this(new SortedChildMap());
+    }
+
+    public InternalNode(ChildMap edgesOut) {
+        this.edgesOut = edgesOut;
     }
 
     public boolean hasSuffixLink() {
@@ -21,17 +24,35 @@ public class InternalNode extends Node {
         return suffixLink;
     }
 
+    public int getLeafCount() {
+        return leafCount;
+    }
+
+    public void setLeafCount(int leafCount) {
+        this.leafCount = leafCount;
+    }
+
+    //Smallest suffix index among the leaves below, i.e. the first occurrence of every string ending on the
+    //edge into this node
+    public int getFirstOccurrence() {
+        return firstOccurrence;
+    }
+
+    public void setFirstOccurrence(int firstOccurrence) {
+        this.firstOccurrence = firstOccurrence;
+    }
+
     @Override
     public boolean isExplicit() {
         return true;
     }
 
-    public LinkedHashMap<Character, Edge> getEdgesOut() {
+    public ChildMap getEdgesOut() {
         return edgesOut;
     }
 
     public boolean hasEdge(char c) {
-        return edgesOut.containsKey(c);
+        return edgesOut.get(c) != null;
     }
 
     public Edge getEdge(char c) {
@@ -39,6 +60,6 @@ public class InternalNode extends Node {
     }
 
     public void addEdgeOut(char c, Edge edge) {
-        edgesOut.put(c, edge);
+        edgesOut = edgesOut.put(c, edge);
     }
 }
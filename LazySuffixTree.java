@@ -0,0 +1,281 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+//Suffix tree that is only built where queries reach. Construction just partitions the suffixes by first char
+//(O(n) time, 4 bytes per char); the subtree for a char is built top-down with TopDownBuilder the first time a
+//query starts with it, and kept in an LRU cache whose estimated size is held under a byte budget. Queries
+//answer exactly like SuffixTree, so this suits ad-hoc workloads on huge texts that touch few subtrees.
+public class LazySuffixTree implements SubstringIndex {
+    //Rough heap cost of a leaf (LeafNode + Edge) and of an internal node (InternalNode, its child map, the edge
+    //into it and that edge's end), used to estimate subtree sizes
+    static final long LEAF_BYTES = 56;
+    static final long INTERNAL_NODE_BYTES = 160;
+
+    private final CharSequence source;
+    private final ForkJoinPool pool;
+    private final long budgetBytes;
+    private final AtomicInteger endMarker;
+    private final Alphabet alphabet;
+    //Suffix start positions grouped by first char: bucket r is suffixes[bucketStarts[r], bucketStarts[r + 1])
+    private final int[] suffixes;
+    private final int[] bucketStarts;
+    //The last implicitSuffixes suffixes occur elsewhere in the text, so they have no leaf
+    private final int implicitSuffixes;
+
+    private final LinkedHashMap<Integer, Subtree> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes;
+    private long expansions;
+    private long nDistinctSubstrings = -1;
+
+    private static class Subtree {
+        //Holds a single edge, from root to the subtree
+        private final InternalNode holder;
+        private final long bytes;
+
+        private Subtree(InternalNode holder, long bytes) {
+            this.holder = holder;
+            this.bytes = bytes;
+        }
+    }
+
+    public LazySuffixTree(CharSequence source, long budgetBytes) {
+        this(source, budgetBytes, ForkJoinPool.commonPool());
+    }
+
+    public LazySuffixTree(CharSequence source, long budgetBytes, ForkJoinPool pool) {
+        this.source = source;
+        this.budgetBytes = budgetBytes;
+        this.pool = pool;
+        endMarker = new AtomicInteger(source.length());
+        alphabet = Alphabet.of(source);
+
+        bucketStarts = new int[alphabet.size() + 1];
+        for (int i = 0; i < source.length(); ++i)
+            ++bucketStarts[alphabet.rank(source.charAt(i)) + 1];
+        for (int r = 1; r < bucketStarts.length; ++r)
+            bucketStarts[r] += bucketStarts[r - 1];
+        suffixes = new int[source.length()];
+        int[] next = bucketStarts.clone();
+        for (int i = 0; i < source.length(); ++i)
+            suffixes[next[alphabet.rank(source.charAt(i))]++] = i;
+        implicitSuffixes = longestRepeatedSuffix(source);
+    }
+
+    @Override
+    public int length() {
+        return source.length();
+    }
+
+    @Override
+    public boolean contains(CharSequence pattern) {
+        return pattern.length() == 0 || locate(pattern) != null;
+    }
+
+    @Override
+    public int countOccurrences(CharSequence pattern) {
+        if (pattern.length() == 0)
+            return source.length();
+        Node locus = locate(pattern);
+        if (locus == null)
+            return 0;
+        int leaves = locus.isLeaf() ? 1 : ((InternalNode) locus).getLeafCount();
+        return leaves + (int) pendingOccurrences(pattern).count();
+    }
+
+    @Override
+    public IntStream findAll(CharSequence pattern) {
+        if (pattern.length() == 0)
+            return IntStream.range(0, source.length());
+        Node locus = locate(pattern);
+        if (locus == null)
+            return IntStream.empty();
+        IntStream.Builder leaves = IntStream.builder();
+        ArrayDeque<Node> stack = new ArrayDeque<>();
+        stack.push(locus);
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            if (node.isLeaf())
+                leaves.add(((LeafNode) node).getSuffixIndex());
+            else
+                for (Edge e : ((InternalNode) node).getEdgesOut().values())
+                    stack.push(e.getTo());
+        }
+        return IntStream.concat(leaves.build(), pendingOccurrences(pattern));
+    }
+
+    //Builds every subtree once, one at a time and without caching them, so this costs a full construction the
+    //first time but never more memory than the largest subtree
+    @Override
+    public synchronized long getNDistinctSubstrings() {
+        if (nDistinctSubstrings < 0) {
+            long sum = 1;
+            for (int r = 0; r < alphabet.size(); ++r) {
+                Subtree subtree = cache.get(r);
+                if (subtree == null)
+                    subtree = build(r);
+                ArrayDeque<Node> stack = new ArrayDeque<>();
+                stack.push(subtree.holder);
+                while (!stack.isEmpty()) {
+                    Node node = stack.pop();
+                    if (node.isExplicit()) {
+                        for (Edge e : ((InternalNode) node).getEdgesOut().values()) {
+                            sum += e.getLength();
+                            stack.push(e.getTo());
+                        }
+                    }
+                }
+            }
+            nDistinctSubstrings = sum;
+        }
+        return nDistinctSubstrings;
+    }
+
+    //Estimated heap size of the cached subtrees
+    public synchronized long getCachedBytes() {
+        return cachedBytes;
+    }
+
+    public synchronized int getCachedSubtrees() {
+        return cache.size();
+    }
+
+    //Number of subtrees built so far, counting rebuilds after eviction
+    public synchronized long getExpansions() {
+        return expansions;
+    }
+
+    private Node locate(CharSequence pattern) {
+        int rank = alphabet.rank(pattern.charAt(0));
+        if (rank < 0)
+            return null;
+        Node node = subtree(rank).holder;
+        int i = 0;
+        while (i < pattern.length()) {
+            if (!node.isExplicit())
+                return null;
+            Edge edge = ((InternalNode) node).getEdge(pattern.charAt(i));
+            if (edge == null)
+                return null;
+            int end = edge.getEnd().get();
+            for (int j = edge.getStart(); j < end && i < pattern.length(); ++j, ++i)
+                if (source.charAt(j) != pattern.charAt(i))
+                    return null;
+            node = edge.getTo();
+        }
+        return node;
+    }
+
+    private IntStream pendingOccurrences(CharSequence pattern) {
+        int length = source.length();
+        return IntStream.range(length - implicitSuffixes, length)
+                .filter(start -> start + pattern.length() <= length && matchesAt(start, pattern));
+    }
+
+    private boolean matchesAt(int start, CharSequence pattern) {
+        for (int i = 0; i < pattern.length(); ++i)
+            if (source.charAt(start + i) != pattern.charAt(i))
+                return false;
+        return true;
+    }
+
+    //The cached subtree for rank, building it and evicting the least recently used ones as needed. A subtree
+    //larger than the whole budget is still cached until the next one is built.
+    private synchronized Subtree subtree(int rank) {
+        Subtree subtree = cache.get(rank);
+        if (subtree != null)
+            return subtree;
+        subtree = build(rank);
+        cache.put(rank, subtree);
+        cachedBytes += subtree.bytes;
+        Iterator<Map.Entry<Integer, Subtree>> eldest = cache.entrySet().iterator();
+        while (cachedBytes > budgetBytes && cache.size() > 1) {
+            cachedBytes -= eldest.next().getValue().bytes;
+            eldest.remove();
+        }
+        return subtree;
+    }
+
+    //Builds the subtree for rank top-down, or, if that takes more than SuffixTree.PARALLEL_WORK_PER_CHAR char
+    //comparisons per suffix in it (a char repeated at length), takes it from a tree of the whole text built with
+    //Ukkonen's Algorithm. Either way a subtree costs O(n) at worst, not O(n * L).
+    private Subtree build(int rank) {
+        int from = bucketStarts[rank];
+        int to = bucketStarts[rank + 1];
+        InternalNode holder = new InternalNode(alphabet.newChildMap());
+        long maxWork = SuffixTree.PARALLEL_WORK_PER_CHAR * Math.max(to - from, 1 << 10);
+        if (TopDownBuilder.build(source, alphabet, holder, endMarker, suffixes, from, to, 0, maxWork, pool)
+                == TopDownBuilder.OVER_BUDGET)
+            holder = detachSubtree(source.charAt(suffixes[from]));
+        ++expansions;
+
+        //Annotate leaf counts bottom-up, counting nodes for the size estimate on the way
+        List<InternalNode> preorder = new ArrayList<>();
+        ArrayDeque<InternalNode> stack = new ArrayDeque<>();
+        stack.push(holder);
+        long leaves = 0;
+        while (!stack.isEmpty()) {
+            InternalNode iNode = stack.pop();
+            preorder.add(iNode);
+            for (Edge e : iNode.getEdgesOut().values()) {
+                if (e.getTo().isExplicit())
+                    stack.push((InternalNode) e.getTo());
+                else
+                    ++leaves;
+            }
+        }
+        for (int i = preorder.size() - 1; i >= 0; --i) {
+            InternalNode iNode = preorder.get(i);
+            int leafCount = 0;
+            for (Edge e : iNode.getEdgesOut().values())
+                leafCount += e.getTo().isLeaf() ? 1 : ((InternalNode) e.getTo()).getLeafCount();
+            iNode.setLeafCount(leafCount);
+        }
+        return new Subtree(holder, leaves * LEAF_BYTES + preorder.size() * INTERNAL_NODE_BYTES);
+    }
+
+    //A holder for the subtree below c of the whole text's tree built with Ukkonen's Algorithm. Its suffix links
+    //are cleared, so the rest of that tree can be collected.
+    private InternalNode detachSubtree(char c) {
+        Edge edge = new SuffixTree(source).getRoot().getEdge(c);
+        InternalNode holder = new InternalNode(alphabet.newChildMap());
+        holder.addEdgeOut(c, new Edge(holder, edge.getTo(), edge.getStart(), edge.getEnd()));
+        ArrayDeque<Node> stack = new ArrayDeque<>();
+        stack.push(edge.getTo());
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            if (node.isExplicit()) {
+                ((InternalNode) node).setSuffixLink(null);
+                for (Edge e : ((InternalNode) node).getEdgesOut().values())
+                    stack.push(e.getTo());
+            }
+        }
+        return holder;
+    }
+
+    //Length of the longest suffix of text occurring somewhere else in it, i.e. how many suffixes Ukkonen's
+    //Algorithm would leave implicit: the largest Z-value of the reversed text, in O(n)
+    private static int longestRepeatedSuffix(CharSequence text) {
+        int n = text.length();
+        int[] z = new int[n];
+        int longest = 0;
+        for (int i = 1, left = 0, right = 0; i < n; ++i) {
+            int k = i < right ? Math.min(right - i, z[i - left]) : 0;
+            while (i + k < n && text.charAt(n - 1 - k) == text.charAt(n - 1 - i - k))
+                ++k;
+            z[i] = k;
+            if (i + k > right) {
+                left = i;
+                right = i + k;
+            }
+            longest = Math.max(longest, k);
+        }
+        return longest;
+    }
+}
@@ -1,6 +1,12 @@
 public class LeafNode extends Node {
-    public LeafNode() {
-        generateCreationNumber();
+    private int suffixIndex;
+
+    public LeafNode(int suffixIndex) {
+        this.suffixIndex = suffixIndex;
+    }
+
+    public int getSuffixIndex() {
+        return suffixIndex;
     }
 
     @Override
@@ -0,0 +1,12 @@
+//A bottom-up fold over a suffix tree, evaluated by TreeAggregation. Children are combined in no particular
+//order and possibly on different threads, so combine must be associative and commutative with identity() as
+//its identity.
+public interface LongTreeAggregator {
+    long identity();
+
+    long combine(long left, long right);
+
+    //Folds node into the combined result of its children (identity() for leaves). edgeLength is the length of
+    //the edge into node and stringDepth the length of the path label ending at node; both are 0 for root.
+    long accumulate(Node node, int edgeLength, int stringDepth, long children);
+}
@@ -1,400 +1,186 @@
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.function.Consumer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
 
 public class Main {
+    private static final String USAGE =
+            "Usage: java Main [--compact] [--batch [--metric distinct|depth|repeat] [--threads n] [file...]]";
+    //Records read ahead of the slowest unfinished one, per worker; bounds the memory held by the reordering buffer
+    private static final int IN_FLIGHT_PER_WORKER = 64;
+
+    //With --batch, every line of the files (or of stdin if none are given) is a record, and one result line is
+    //printed per record, in input order. Otherwise a single line is read from stdin. With --compact, trees are
+    //built as CompactSuffixTree, which takes far less memory, except for the repeat metric, which needs SuffixTree.
     public static void main(String[] args) {
+        boolean compact = args.length > 0 && args[0].equals("--compact");
+        int first = compact ? 1 : 0;
+        if (args.length > first && args[first].equals("--batch")) {
+            runBatch(Arrays.copyOfRange(args, first + 1, args.length), compact);
+            return;
+        }
         try (InputStreamReader in = new InputStreamReader(System.in);
              BufferedReader br = new BufferedReader(in)) {
             final String text = br.readLine() + "$";
-            SuffixTree st = new SuffixTree(text);
-          //  System.out.println(st);
-            System.out.println(st.getInternalNodeDepth());
+            System.out.println(compact ? new CompactSuffixTree(text).getInternalNodeDepth()
+                    : new SuffixTree(text).getInternalNodeDepth());
         } catch (IOException e) {
             System.out.println("Error reading input");
             System.out.println(e.getMessage());
         }
     }
 
-    public static abstract class Node {
-        private int creationNumber;
-        private static int numCreated = 0;
-
-        protected void generateCreationNumber() {
-            creationNumber = ++numCreated;
-        }
-
-        public boolean isLeaf() {
-            return false;
-        }
-
-        public boolean isExplicit() {
-            return false;
-        }
-
-        public boolean isRoot() {
-            return false;
-        }
-
-        public int getCreationNumber() {
-            return creationNumber;
-        }
-
-        @Override
-        public String toString() {
-            return Integer.toString(creationNumber);
-        }
-    }
-
-    public static class Edge {
-        private Node from;
-        private Node to;
-        private int start;
-        private AtomicInteger end;
-
-        public Edge(Node from, Node to, int start, AtomicInteger end) {
-            this.from = from;
-            this.to = to;
-            this.start = start;
-            this.end = end;
-        }
-
-        public Node getTo() {
-            return to;
-        }
-
-        public int getStart() {
-            return start;
-        }
-
-        public AtomicInteger getEnd() {
-            return end;
-        }
-
-        public void setFrom(Node from) {
-            this.from = from;
-        }
-
-        public void setTo(Node to) {
-            this.to = to;
-        }
-
-        public void setStart(int start) {
-            this.start = start;
-        }
-
-        public void setEnd(AtomicInteger end) {
-            this.end = end;
-        }
-
-        public int getLength() {
-            return end.get() - start;
-        }
-    }
-
-    public static class InternalNode extends Node {
-        private LinkedHashMap<Character, Edge> edgesOut;
-        private InternalNode suffixLink = null;
-
-        public InternalNode() {
-            generateCreationNumber();
-            edgesOut = new LinkedHashMap<>();
-        }
-
-        public boolean hasSuffixLink() {
-            return suffixLink != null;
-        }
-
-        public void setSuffixLink(InternalNode other) {
-            suffixLink = other;
-        }
-
-        public InternalNode getSuffixLink() {
-            return suffixLink;
-        }
-
-        @Override
-        public boolean isExplicit() {
-            return true;
-        }
-
-        public LinkedHashMap<Character, Edge> getEdgesOut() {
-            return edgesOut;
-        }
-
-        public boolean hasEdge(char c) {
-            return edgesOut.containsKey(c);
-        }
-
-        public Edge getEdge(char c) {
-            return edgesOut.get(c);
-        }
-
-        public void addEdgeOut(char c, Edge edge) {
-            edgesOut.put(c, edge);
-        }
-    }
-
-    public static class RootNode extends InternalNode {
-        public RootNode() {
-            super();
-        }
-
-        @Override
-        public boolean isRoot() {
-            return true;
-        }
-    }
-
-    public static class LeafNode extends Node {
-        public LeafNode() {
-            generateCreationNumber();
-        }
-
-        @Override
-        public boolean isLeaf() {
-            return true;
-        }
-    }
-
-    public static class SuffixTree {
-        private String source;
-        private RootNode root;
-        private InternalNode activeNode;
-        private Character activeEdge;
-        private int activeLength;
-        private int remainder;
-        private AtomicInteger endMarker;
-
-        private LinkedHashMap<Integer, Integer> suffixLinks;
-
-        //Builds a suffix tree using Ukkonen's Algorithm
-        public SuffixTree(String source) {
-            suffixLinks = new LinkedHashMap<>();
-            this.source = source;
-            root = new RootNode();
-            activeNode = root;
-            activeEdge = null;
-            activeLength = 0;
-            remainder = 0;
-            endMarker = new AtomicInteger(0);
-
-            while (endMarker.get() != source.length()) {
-                ++remainder;
-
-                //First: update all terminal edges
-                int i = endMarker.getAndIncrement();
-
-                //Second: determine if insert is necessary, or update active points
-                update(i, null);
-
-/*            System.out.println("=====STAGE " + endMarker.get() + "=====");
-            System.out.println("Suffix: " + this.source.substring(0, endMarker.get()));
-            System.out.println("Active Node: " + activeNode.getCreationNumber());
-            System.out.println("Active Edge: " + activeEdge);
-            System.out.println("Active Length: " + activeLength);
-            System.out.println("Remainder: " + remainder);
-            System.out.println(this);
-            System.out.println("=====STAGE " + endMarker.get() + "=====");*/
+    private static void runBatch(String[] args, boolean compact) {
+        Metric metric = Metric.DEPTH;
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<Path> files = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; ++i) {
+                if (args[i].equals("--metric"))
+                    metric = Metric.valueOf(args[++i].toUpperCase(Locale.ROOT));
+                else if (args[i].equals("--threads"))
+                    threads = Integer.parseInt(args[++i]);
+                else
+                    files.add(Path.of(args[i]));
             }
-        }
-
-        public int getNDistinctSubstrings() {
-            ArrayDeque<Edge> edgeStack = new ArrayDeque<>();
-            for (Edge e : root.getEdgesOut().values())
-                edgeStack.push(e);
-            if (edgeStack.isEmpty())
-                return 1;
-            int sum = 0;
-            while (!edgeStack.isEmpty()) {
-                Edge top = edgeStack.pop();
-                sum += top.getLength();
-                if (top.getTo().isExplicit()) {
-                    InternalNode iNode = (InternalNode) top.getTo();
-                    for (Edge e : iNode.getEdgesOut().values())
-                        edgeStack.push(e);
-                }
+            if (threads < 1)
+                throw new IllegalArgumentException("threads must be positive");
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+
+        Batch batch = new Batch(metric, compact, threads);
+        try {
+            if (files.isEmpty()) {
+                batch.submit(new BufferedReader(new InputStreamReader(System.in)));
+            } else {
+                for (Path file : files)
+                    try (BufferedReader in = Files.newBufferedReader(file)) {
+                        batch.submit(in);
+                    }
             }
-            return sum + 1;
-        }
-
-        public int getInternalNodeDepth() {
-            return getDeepestInternalNodeImpl(root);
-        }
-
-        private int getDeepestInternalNodeImpl(InternalNode iNode) {
-            return iNode.getEdgesOut().values().stream()
-                    .filter(e -> e.getTo().isExplicit())
-                    .mapToInt(e -> e.getLength() + getDeepestInternalNodeImpl((InternalNode) e.getTo()))
-                    .max()
-                    .orElseGet(() -> 0);
+            batch.finish();
+        } catch (IOException e) {
+            batch.abort();
+            System.out.println("Error reading input");
+            System.out.println(e.getMessage());
+        } catch (InterruptedException e) {
+            batch.abort();
+            Thread.currentThread().interrupt();
         }
+    }
 
-        private void update(int index, InternalNode previousNode) {/*
-        System.out.println("===UPDATE CALLED===");
-        System.out.println("Suffix: " + this.source.substring(0, endMarker.get()));
-        System.out.println("Active Node: " + activeNode.getCreationNumber());
-        System.out.println("Active Edge: " + activeEdge);
-        System.out.println("Active Length: " + activeLength);
-        System.out.println("Remainder: " + remainder);
-        System.out.println("Index: " + index);
-        System.out.println("previousNode: " + previousNode);
-        System.out.println(this);*/
-
-            char lastChar = source.charAt(index);
-
-            //Update rule lambdas
-            Runnable rule1 = () -> {
-                if (activeNode.isRoot() && activeLength > 0) {
-                    --activeLength;
-                    activeEdge = source.charAt(index - activeLength);
-                }
-            };
-
-            Consumer<InternalNode> rule2 = iNode -> {
-                if (previousNode != null) {
-                    previousNode.setSuffixLink(iNode);
-                    suffixLinks.put(previousNode.getCreationNumber(), iNode.getCreationNumber());
-                }
-            };
-
-            Runnable rule3 = () -> {
-                if (!activeNode.isRoot()) {
-                    if (activeNode.hasSuffixLink())
-                        activeNode = activeNode.getSuffixLink();
-                    else
-                        activeNode = root;
+    //What --batch prints for each record. Repeats are found with the same "$" terminator as single-line input,
+    //or with another char the record does not contain if it contains "$".
+    enum Metric {
+        //Distinct substrings of the record, counting the empty string
+        DISTINCT,
+        //Length of the longest repeated substring
+        DEPTH,
+        //The longest repeated substring itself (any one of them on ties)
+        REPEAT;
+
+        String apply(String record, boolean compact) {
+            return switch (this) {
+                //Edges spell every substring even while some suffixes are still implicit, so no terminator is
+                //needed
+                case DISTINCT -> Long.toString(compact ? new CompactSuffixTree(record).getNDistinctSubstrings()
+                        : new SuffixTree(record).getNDistinctSubstrings());
+                case DEPTH -> {
+                    String text = record + terminator(record);
+                    yield Integer.toString(compact ? new CompactSuffixTree(text).getInternalNodeDepth()
+                            : new SuffixTree(text).getInternalNodeDepth());
                 }
-            };
-
-            Consumer<InternalNode> allRules = iNode -> {
-                rule1.run();
-                rule2.accept(iNode);
-                rule3.run();
-            };
-
-            //Position validation lambda
-            Runnable checkPos = () -> {
-                if (activeEdge != null && activeNode.hasEdge(activeEdge)) {
-                    Edge aEdge = activeNode.getEdge(activeEdge);
-                    while (aEdge != null && activeLength >= aEdge.getLength()) {
-                        activeNode = (InternalNode) aEdge.getTo();
-                        activeLength -= aEdge.getLength();
-                        activeEdge = source.charAt(index - activeLength);
-                        aEdge = activeNode.getEdge(activeEdge);
-                    }
+                case REPEAT -> {
+                    List<Repeat> repeats = new RepeatFinder(new SuffixTree(record + terminator(record))).longestRepeats(1);
+                    yield repeats.isEmpty() ? "" : repeats.get(0).getSubstring().toString();
                 }
             };
+        }
 
-            Consumer<InternalNode> jumpLink = iNode -> {
-              iNode.setSuffixLink(activeNode);
-              suffixLinks.put(iNode.getCreationNumber(), activeNode.getCreationNumber());
-            };
+        //A terminator only makes every suffix a leaf if it occurs nowhere else
+        private static char terminator(String record) {
+            BitSet used = new BitSet();
+            for (int i = 0; i < record.length(); ++i)
+                used.set(record.charAt(i));
+            return (char) used.nextClearBit('$');
+        }
+    }
 
-            if (activeEdge == null || activeLength == 0) {//do update directly at current node
-                //Case 1: lastChar is already present in this node, so just update active point
-                if (activeNode.hasEdge(lastChar)) {
-                    if (previousNode != null)
-                        jumpLink.accept(previousNode);
-                    ++activeLength;
-                    activeEdge = lastChar;
-                    checkPos.run();
-                } else { //Case 2: directly insert new edge into node, terminating in a leaf
-                    Edge edge = new Edge(activeNode, new LeafNode(), index, endMarker);
-                    activeNode.addEdgeOut(lastChar, edge);
-                    InternalNode fromNode = activeNode;
-                    --remainder;
-                    allRules.accept(activeNode);
-                    if (remainder > 0) {
-                        if (fromNode.isRoot())
-                            update(index, null);
-                        else
-                            update(index, fromNode);
+    //Runs records on a fixed pool of workers and prints their results in input order: finished results wait in
+    //a reordering buffer until every earlier record has been printed. The reader blocks once too many records
+    //are in flight, so a slow record cannot make the buffer grow without bound.
+    private static class Batch {
+        private final Metric metric;
+        private final boolean compact;
+        private final ForkJoinPool pool;
+        private final Semaphore inFlight;
+        private final PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16));
+        //Guarded by this
+        private final HashMap<Long, String> finished = new HashMap<>();
+        private long printed;
+        //Only used by the reading thread
+        private long submitted;
+
+        private Batch(Metric metric, boolean compact, int threads) {
+            this.metric = metric;
+            this.compact = compact;
+            pool = new ForkJoinPool(threads);
+            inFlight = new Semaphore(threads * IN_FLIGHT_PER_WORKER);
+        }
+
+        private void submit(BufferedReader in) throws IOException, InterruptedException {
+            String line;
+            while ((line = in.readLine()) != null) {
+                inFlight.acquire();
+                long index = submitted++;
+                String record = line;
+                pool.execute(() -> {
+                    String result = "Error";
+                    try {
+                        result = metric.apply(record, compact);
+                    } catch (Throwable e) {
+                        //Errors too (e.g. OutOfMemoryError on a huge record): every record must still get its line,
+                        //or finish() would wait for it forever
+                        result = "Error: " + e;
+                    } finally {
+                        complete(index, result);
+                        inFlight.release();
                     }
-                }
-            } else { //activePoint points to a point along an existing edge
-                Edge aEdge = activeNode.getEdge(activeEdge);
-                int pos = aEdge.getStart() + activeLength;
-                char activePointChar = source.charAt(aEdge.getStart() + activeLength);
-                //Case 1: this next point matches lastChar, so just update activeLength
-                if (activePointChar == lastChar) {
-                    if (previousNode != null)
-                        jumpLink.accept(previousNode);
-                    ++activeLength;
-                    checkPos.run();
-                } else { //Case 2: this edge needs to be split at this point
-                    InternalNode iNode = new InternalNode();
-                    iNode.addEdgeOut(activePointChar, new Edge(iNode, aEdge.getTo(), pos, aEdge.getEnd()));
-                    iNode.addEdgeOut(lastChar, new Edge(iNode, new LeafNode(), index, endMarker));
-                    aEdge.setEnd(new AtomicInteger(pos));
-                    aEdge.setTo(iNode);
-                    --remainder;
-                    allRules.accept(iNode);
-                    checkPos.run();
-                    if (remainder > 0)
-                        update(index, iNode);
-                }
+                });
             }
         }
 
-        //Print function based on the one found in this article:
-        //https://www.baeldung.com/java-print-binary-tree-diagram
-        @Override
-        public String toString() {
-            StringBuilder sb = new StringBuilder();
-            traverseNode(sb, "", "", root, false);
-            sb.append(suffixLinks);
-            return sb.toString();
+        private synchronized void complete(long index, String result) {
+            finished.put(index, result);
+            for (String next; (next = finished.remove(printed)) != null; ++printed)
+                out.println(next);
+            notifyAll();
         }
 
-        private void traverseNode(StringBuilder sb, String padding, String pointer, Node node, boolean nodeAfter) {
-            if (node != null) {
-                sb.append(padding);
-                sb.append(pointer);
-                if (node == activeNode)
-                    sb.append('(');
-                else
-                    sb.append('[');
-                sb.append(node.getCreationNumber());
-                if (node == activeNode)
-                    sb.append(')');
-                else
-                    sb.append(']');
-                sb.append('\n');
-
-                String terminalPointer = "└──";
-                String linkPointer = "├──";
-
-                Consumer<String> nextCall = s -> {
-                    InternalNode iNode = (InternalNode) node;
-                    List<Edge> edgeList = new ArrayList<>(iNode.getEdgesOut().values());
-                    for (int i = 0; i < edgeList.size(); ++i) {
-                        Edge edge = edgeList.get(i);
-                        String edgePointer = "<" + source.substring(edge.getStart(), edge.getEnd().get()) + ">──";
-                        if (i == edgeList.size() - 1)
-                            traverseNode(sb, s, terminalPointer + edgePointer, edge.getTo(), false);
-                        else
-                            traverseNode(sb, s, linkPointer + edgePointer, edge.getTo(), true);
-                    }
-                };
-
+        private void finish() throws InterruptedException {
+            synchronized (this) {
+                while (printed < submitted)
+                    wait();
+                out.flush();
+            }
+            pool.shutdown();
+        }
 
-                if (node.isRoot()) {
-                    nextCall.accept("");
-                } else if (node.isExplicit()) {
-                    int length = pointer.length() + Integer.toString(node.getCreationNumber()).length();
-                    StringBuilder pb = new StringBuilder(padding);
-                    if (nodeAfter)
-                        pb.append("|" + " ".repeat(length));
-                    else
-                        pb.append(" " + " ".repeat(length));
-                    nextCall.accept(pb.toString());
-                }
+        //Prints what is already in order and drops the rest
+        private void abort() {
+            pool.shutdownNow();
+            synchronized (this) {
+                out.flush();
             }
         }
     }
-
-}
\ No newline at end of file
+}
@@ -0,0 +1,150 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+//Read-only view of a tree written by CompactSuffixTree.save. The file is memory-mapped and queries read
+//straight from the mapped pages, so opening it costs no parsing or copying.
+//
+//Format (little-endian), version 1:
+//  header:  int magic, int version, int flags, int textLength, int nodeCount, int hashBits,
+//           long nDistinctSubstrings, int internalNodeDepth, int reserved
+//  longs:   childKeys[1 << hashBits]
+//  ints:    children[1 << hashBits], start[nodeCount], end[nodeCount], suffixLink[nodeCount], depth[nodeCount]
+//  text:    textLength bytes if flags has BYTE_TEXT, otherwise textLength UTF-16 chars
+public class MappedSuffixTree {
+    static final int MAGIC = 0x53465854;
+    static final int VERSION = 1;
+    static final int BYTE_TEXT = 1;
+
+    private static final int HEADER_BYTES = 40;
+    private static final int CHUNK_SHIFT = 30;
+    private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+
+    private final MappedByteBuffer[] chunks;
+    private final boolean byteText;
+    private final int textLength;
+    private final int nodeCount;
+    private final int hashBits;
+    private final long nDistinctSubstrings;
+    private final int internalNodeDepth;
+
+    private final long childKeysOffset;
+    private final long childrenOffset;
+    private final long startOffset;
+    private final long endOffset;
+    private final long suffixLinkOffset;
+    private final long depthOffset;
+    private final long textOffset;
+
+    public MappedSuffixTree(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES)
+                throw new IOException(path + " is not a suffix tree file");
+            chunks = new MappedByteBuffer[(int) ((size + CHUNK_MASK) >>> CHUNK_SHIFT)];
+            for (int i = 0; i < chunks.length; ++i) {
+                long position = (long) i << CHUNK_SHIFT;
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(size - position, 1L << CHUNK_SHIFT));
+                chunks[i].order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+
+        ByteBuffer header = chunks[0];
+        if (header.getInt(0) != MAGIC)
+            throw new IOException(path + " is not a suffix tree file");
+        if (header.getInt(4) != VERSION)
+            throw new IOException("Unsupported suffix tree file version " + header.getInt(4));
+        byteText = (header.getInt(8) & BYTE_TEXT) != 0;
+        textLength = header.getInt(12);
+        nodeCount = header.getInt(16);
+        hashBits = header.getInt(20);
+        nDistinctSubstrings = header.getLong(24);
+        internalNodeDepth = header.getInt(32);
+
+        long slots = 1L << hashBits;
+        childKeysOffset = HEADER_BYTES;
+        childrenOffset = childKeysOffset + slots * 8;
+        startOffset = childrenOffset + slots * 4;
+        endOffset = startOffset + nodeCount * 4L;
+        suffixLinkOffset = endOffset + nodeCount * 4L;
+        depthOffset = suffixLinkOffset + nodeCount * 4L;
+        textOffset = depthOffset + nodeCount * 4L;
+    }
+
+    public long getNDistinctSubstrings() {
+        return nDistinctSubstrings;
+    }
+
+    public int getInternalNodeDepth() {
+        return internalNodeDepth;
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public int length() {
+        return textLength;
+    }
+
+    public char charAt(int index) {
+        if (byteText)
+            return (char) (getByte(textOffset + index) & 0xFF);
+        return (char) getShort(textOffset + index * 2L);
+    }
+
+    public int getSuffixLink(int node) {
+        return getInt(suffixLinkOffset + node * 4L);
+    }
+
+    public boolean contains(CharSequence pattern) {
+        int node = CompactSuffixTree.ROOT;
+        int i = 0;
+        while (i < pattern.length()) {
+            node = getChild(node, pattern.charAt(i));
+            if (node == CompactSuffixTree.ROOT)
+                return false;
+            int edgeStart = getInt(startOffset + node * 4L);
+            int edgeEnd = getInt(endOffset + node * 4L);
+            if (edgeEnd == CompactSuffixTree.LEAF)
+                edgeEnd = textLength;
+            for (int j = edgeStart; j < edgeEnd && i < pattern.length(); ++j, ++i)
+                if (charAt(j) != pattern.charAt(i))
+                    return false;
+        }
+        return true;
+    }
+
+    private int getChild(int node, char c) {
+        long key = CompactSuffixTree.childKey(node, c);
+        int mask = (1 << hashBits) - 1;
+        for (int i = CompactSuffixTree.slot(key, hashBits); ; i = (i + 1) & mask) {
+            long slotKey = getLong(childKeysOffset + i * 8L);
+            if (slotKey == key)
+                return getInt(childrenOffset + i * 4L);
+            if (slotKey == CompactSuffixTree.EMPTY)
+                return CompactSuffixTree.ROOT;
+        }
+    }
+
+    private byte getByte(long position) {
+        return chunks[(int) (position >>> CHUNK_SHIFT)].get((int) (position & CHUNK_MASK));
+    }
+
+    //Values never straddle a chunk boundary: every section starts at a multiple of its element size
+    private short getShort(long position) {
+        return chunks[(int) (position >>> CHUNK_SHIFT)].getShort((int) (position & CHUNK_MASK));
+    }
+
+    private int getInt(long position) {
+        return chunks[(int) (position >>> CHUNK_SHIFT)].getInt((int) (position & CHUNK_MASK));
+    }
+
+    private long getLong(long position) {
+        return chunks[(int) (position >>> CHUNK_SHIFT)].getLong((int) (position & CHUNK_MASK));
+    }
+}
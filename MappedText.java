@@ -0,0 +1,79 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+//Byte-per-char (ISO-8859-1) text backed by a memory-mapped file, so large inputs are read in place
+//instead of being copied onto the heap as UTF-16. Offsets are longs; since the suffix trees index with
+//ints, files longer than Integer.MAX_VALUE chars are indexed through window(offset, length) views.
+public class MappedText implements CharSequence {
+    private static final int CHUNK_SHIFT = 30;
+    private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+
+    private final MappedByteBuffer[] chunks;
+    private final long offset;
+    private final long length;
+
+    public MappedText(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            chunks = new MappedByteBuffer[(int) ((size + CHUNK_MASK) >>> CHUNK_SHIFT)];
+            for (int i = 0; i < chunks.length; ++i) {
+                long position = (long) i << CHUNK_SHIFT;
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(size - position, 1L << CHUNK_SHIFT));
+            }
+            offset = 0;
+            length = size;
+        }
+    }
+
+    private MappedText(MappedByteBuffer[] chunks, long offset, long length) {
+        this.chunks = chunks;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    public long longLength() {
+        return length;
+    }
+
+    public char charAt(long index) {
+        if (index < 0 || index >= length)
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + length);
+        long position = offset + index;
+        return (char) (chunks[(int) (position >>> CHUNK_SHIFT)].get((int) (position & CHUNK_MASK)) & 0xFF);
+    }
+
+    //Returns a view of [start, start + length) that shares the same mapping
+    public MappedText window(long start, long length) {
+        if (start < 0 || length < 0 || start + length > this.length)
+            throw new IndexOutOfBoundsException("Window [" + start + ", " + (start + length) + ") out of bounds for length " + this.length);
+        return new MappedText(chunks, offset + start, length);
+    }
+
+    @Override
+    public int length() {
+        if (length > Integer.MAX_VALUE)
+            throw new IllegalStateException("Text of " + length + " chars is too long to index directly; use window(offset, length)");
+        return (int) length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return charAt((long) index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return window(start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        char[] chars = new char[length()];
+        for (int i = 0; i < chars.length; ++i)
+            chars[i] = charAt((long) i);
+        return new String(chars);
+    }
+}
@@ -0,0 +1,165 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+
+//Matching statistics of a query stream against a reference SuffixTree: for every query position, the length of
+//the longest prefix of the query from there that occurs in the reference, and one reference offset where it
+//does. The scan keeps only the locus of the current match in the tree; when the match cannot be extended, the
+//record for its start is emitted and the locus drops its first char by following a suffix link, then walks
+//down again by skip/count. Chars of the current match are read back from the reference rather than buffered, so
+//streams of any length are scanned in one pass and constant memory.
+//
+//Linear in the query length for trees built with Ukkonen's Algorithm. Nodes without a suffix link (all of
+//them, for trees from buildParallel) fall back to a rescan from root. The reference must not be appended to
+//during a scan.
+public class MatchingStatistics {
+    public interface MatchConsumer {
+        //referenceOffset is -1 when matchLength is 0
+        void accept(long position, int matchLength, int referenceOffset);
+    }
+
+    private static final int BUFFER_SIZE = 1 << 13;
+
+    private final SuffixTree reference;
+
+    public MatchingStatistics(SuffixTree reference) {
+        this.reference = reference;
+    }
+
+    public void scan(CharSequence query, MatchConsumer consumer) {
+        Scan scan = new Scan(consumer);
+        for (int i = 0; i < query.length(); ++i)
+            scan.accept(query.charAt(i));
+        scan.finish();
+    }
+
+    public void scan(Reader query, MatchConsumer consumer) throws IOException {
+        Scan scan = new Scan(consumer);
+        char[] buffer = new char[BUFFER_SIZE];
+        for (int read; (read = query.read(buffer)) >= 0; )
+            for (int i = 0; i < read; ++i)
+                scan.accept(buffer[i]);
+        scan.finish();
+    }
+
+    //Reads bytes as Latin-1 chars, matching ByteText and MappedText
+    public void scan(InputStream query, MatchConsumer consumer) throws IOException {
+        Scan scan = new Scan(consumer);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        for (int read; (read = query.read(buffer)) >= 0; )
+            for (int i = 0; i < read; ++i)
+                scan.accept((char) (buffer[i] & 0xFF));
+        scan.finish();
+    }
+
+    //Scans the remaining bytes of query as Latin-1 chars, leaving its position at its limit
+    public void scan(ByteBuffer query, MatchConsumer consumer) {
+        Scan scan = new Scan(consumer);
+        while (query.hasRemaining())
+            scan.accept((char) (query.get() & 0xFF));
+        scan.finish();
+    }
+
+    private class Scan {
+        private final MatchConsumer consumer;
+        private final RootNode root;
+        private final CharSequence source;
+
+        //The current match is query[position, position + matchLength) and occurs at source[offset, ...). Its
+        //locus is edgeOffset chars down edge from node, or node itself when edge is null.
+        private long position;
+        private int matchLength;
+        private int offset;
+        private InternalNode node;
+        private int nodeDepth;
+        private Edge edge;
+        private int edgeOffset;
+
+        private Scan(MatchConsumer consumer) {
+            this.consumer = consumer;
+            root = reference.getRoot();
+            source = reference.getSource();
+            node = root;
+        }
+
+        private void accept(char c) {
+            while (!extend(c)) {
+                if (matchLength == 0) {
+                    consumer.accept(position++, 0, -1);
+                    return;
+                }
+                consumer.accept(position++, matchLength, offset);
+                shorten();
+            }
+        }
+
+        private void finish() {
+            while (matchLength > 0) {
+                consumer.accept(position++, matchLength, offset);
+                shorten();
+            }
+        }
+
+        private boolean extend(char c) {
+            if (edge == null) {
+                Edge next = node.getEdge(c);
+                if (next == null)
+                    return false;
+                edge = next;
+                edgeOffset = 0;
+            } else if (edgeOffset == edge.getLength() || source.charAt(edge.getStart() + edgeOffset) != c) {
+                //A leaf edge is used up when the match reaches the end of the reference
+                return false;
+            }
+            ++edgeOffset;
+            ++matchLength;
+            offset = firstOccurrence(edge.getTo());
+            if (edgeOffset == edge.getLength() && edge.getTo().isExplicit()) {
+                node = (InternalNode) edge.getTo();
+                nodeDepth += edgeOffset;
+                edge = null;
+            }
+            return true;
+        }
+
+        //Moves the locus to the current match without its first char
+        private void shorten() {
+            --matchLength;
+            //The shorter match occurs one char after the longer one; its chars are read from there
+            int start = offset + 1;
+            if (!node.isRoot() && node.hasSuffixLink()) {
+                node = node.getSuffixLink();
+                --nodeDepth;
+            } else {
+                node = root;
+                nodeDepth = 0;
+            }
+            edge = null;
+            edgeOffset = 0;
+            //Skip/count down to the locus
+            int remaining = matchLength - nodeDepth;
+            while (remaining > 0) {
+                Edge next = node.getEdge(source.charAt(start + nodeDepth));
+                if (remaining >= next.getLength() && next.getTo().isExplicit()) {
+                    node = (InternalNode) next.getTo();
+                    nodeDepth += next.getLength();
+                    remaining -= next.getLength();
+                } else {
+                    edge = next;
+                    edgeOffset = remaining;
+                    remaining = 0;
+                }
+            }
+            //That occurrence may end the reference, so offsets are always taken from the locus' subtree
+            if (edge != null)
+                offset = firstOccurrence(edge.getTo());
+            else if (!node.isRoot())
+                offset = node.getFirstOccurrence();
+        }
+
+        private int firstOccurrence(Node node) {
+            return node.isLeaf() ? ((LeafNode) node).getSuffixIndex() : ((InternalNode) node).getFirstOccurrence();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+//Immutable bit vector answering rank queries in O(1), with one int of counts per 512 bits (~6% overhead)
+class RankBitVector {
+    private static final int BLOCK_SHIFT = 9;
+    private static final int WORDS_PER_BLOCK = 1 << (BLOCK_SHIFT - 6);
+
+    private final long[] words;
+    private final int[] blockRanks;
+    private final int length;
+
+    //Takes ownership of words, whose bit i (bit i & 63 of words[i >>> 6]) is position i
+    RankBitVector(long[] words, int length) {
+        this.words = words;
+        this.length = length;
+        blockRanks = new int[(words.length + WORDS_PER_BLOCK - 1) / WORDS_PER_BLOCK + 1];
+        int ones = 0;
+        for (int i = 0; i < words.length; ++i) {
+            if (i % WORDS_PER_BLOCK == 0)
+                blockRanks[i / WORDS_PER_BLOCK] = ones;
+            ones += Long.bitCount(words[i]);
+        }
+        blockRanks[blockRanks.length - 1] = ones;
+    }
+
+    static long[] newWords(int length) {
+        return new long[(length + 63) >>> 6];
+    }
+
+    int length() {
+        return length;
+    }
+
+    boolean get(int i) {
+        return (words[i >>> 6] & (1L << i)) != 0;
+    }
+
+    //Number of set bits in [0, i)
+    int rank1(int i) {
+        if (i == length)
+            return blockRanks[blockRanks.length - 1];
+        int word = i >>> 6;
+        int rank = blockRanks[word / WORDS_PER_BLOCK];
+        for (int w = word & -WORDS_PER_BLOCK; w < word; ++w)
+            rank += Long.bitCount(words[w]);
+        return rank + Long.bitCount(words[word] & ((1L << i) - 1));
+    }
+
+    int rank0(int i) {
+        return i - rank1(i);
+    }
+
+    long sizeInBytes() {
+        return words.length * 8L + blockRanks.length * 4L;
+    }
+}
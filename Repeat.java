@@ -0,0 +1,32 @@
+import java.util.Arrays;
+
+//A substring reported by RepeatFinder: its length and the start positions of its occurrences, in increasing
+//order. For a longest common substring there is one position per text instead.
+public class Repeat {
+    private final CharSequence source;
+    private final int length;
+    private final int[] positions;
+
+    Repeat(CharSequence source, int length, int[] positions) {
+        this.source = source;
+        this.length = length;
+        this.positions = positions;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public int[] getPositions() {
+        return positions.clone();
+    }
+
+    public CharSequence getSubstring() {
+        return source.subSequence(positions[0], positions[0] + length);
+    }
+
+    @Override
+    public String toString() {
+        return "(" + length + ", " + Arrays.toString(positions) + ")";
+    }
+}
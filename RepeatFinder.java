@@ -0,0 +1,163 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+//Repeat queries over a SuffixTree. Each query is one pass over the suffixes in lexicographic order
+//(SuffixTree.forEachSuffix) that simulates a bottom-up walk of the internal nodes as LCP intervals: an
+//interval is a run of suffixes sharing a prefix of its length, which is exactly a right-maximal repeat. Only the
+//best k intervals are kept, in a bounded priority queue, so memory stays at one int per char for the suffix
+//array plus O(k) regardless of how many repeats the text has.
+public class RepeatFinder {
+    private static final int UNIQUE = -1;
+
+    private final SuffixTree tree;
+    private final CharSequence source;
+
+    public RepeatFinder(SuffixTree tree) {
+        this.tree = tree;
+        this.source = tree.getSource();
+    }
+
+    //The k longest repeated substrings (every string occurring at least twice that cannot be extended to the
+    //right without losing an occurrence), longest first
+    public List<Repeat> longestRepeats(int k) {
+        return topK(k, Kind.REPEAT);
+    }
+
+    //The k longest maximal repeats: repeats that also cannot be extended to the left, longest first
+    public List<Repeat> maximalRepeats(int k) {
+        return topK(k, Kind.MAXIMAL);
+    }
+
+    //The k longest supermaximal repeats: maximal repeats that are not a substring of another repeat
+    public List<Repeat> supermaximalRepeats(int k) {
+        return topK(k, Kind.SUPERMAXIMAL);
+    }
+
+    //Longest substring of both a and b, with its first offset in a and in b, or null if they share no char
+    public static Repeat longestCommonSubstring(CharSequence a, CharSequence b) {
+        GeneralizedSuffixTree tree = new GeneralizedSuffixTree();
+        tree.addDocument(a);
+        tree.addDocument(b);
+        String common = tree.longestCommonSubstring(2);
+        if (common.isEmpty())
+            return null;
+        int[] positions = {Integer.MAX_VALUE, Integer.MAX_VALUE};
+        tree.findAll(common, (documentId, offset) -> positions[documentId] = Math.min(positions[documentId], offset));
+        return new Repeat(a, common.length(), positions);
+    }
+
+    private enum Kind {
+        REPEAT, MAXIMAL, SUPERMAXIMAL
+    }
+
+    //An open LCP interval: suffix array rows [from, to) whose suffixes share their first length chars
+    private static class Interval {
+        private final int length;
+        private final int from;
+        private int to;
+        //Whether a nested interval was found, in which case this one is not a local maximum
+        private boolean hasChild;
+
+        private Interval(int length, int from, boolean hasChild) {
+            this.length = length;
+            this.from = from;
+            this.hasChild = hasChild;
+        }
+    }
+
+    private List<Repeat> topK(int k, Kind kind) {
+        if (k < 0)
+            throw new IllegalArgumentException("k must not be negative, got " + k);
+        //The worst kept interval is at the head: shortest, then latest in suffix order
+        PriorityQueue<Interval> best = new PriorityQueue<>(Comparator.<Interval>comparingInt(i -> i.length)
+                .thenComparing(i -> i.from, Comparator.reverseOrder()));
+        int[] suffixArray = new int[tree.length()];
+        ArrayList<Interval> stack = new ArrayList<>();
+        stack.add(new Interval(0, 0, false));
+        //Left chars of the suffixes directly in the top interval, while it has no child
+        BitSet leftChars = new BitSet();
+        boolean[] leftDistinct = {true};
+        int[] lastLeftChange = {0};
+        int[] row = {0};
+
+        tree.forEachSuffix((suffix, lcp) -> {
+            int i = row[0]++;
+            suffixArray[i] = suffix;
+            if (i == 0)
+                return;
+            int from = close(i, lcp, stack, kind, best, k, leftDistinct[0], lastLeftChange[0]);
+            Interval top = stack.get(stack.size() - 1);
+            if (lcp > top.length) {
+                boolean nested = from < i - 1;
+                top.hasChild = true;
+                top = new Interval(lcp, from, nested);
+                stack.add(top);
+                if (!nested) {
+                    leftChars.clear();
+                    leftDistinct[0] = true;
+                    addLeftChar(leftChars, leftDistinct, suffixArray[i - 1]);
+                }
+            }
+            if (!top.hasChild)
+                addLeftChar(leftChars, leftDistinct, suffix);
+            if (leftChar(suffix) != leftChar(suffixArray[i - 1]))
+                lastLeftChange[0] = i;
+        });
+        close(row[0], 0, stack, kind, best, k, leftDistinct[0], lastLeftChange[0]);
+
+        List<Repeat> repeats = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            Interval interval = best.poll();
+            int[] positions = Arrays.copyOfRange(suffixArray, interval.from, interval.to);
+            Arrays.sort(positions);
+            repeats.add(new Repeat(source, interval.length, positions));
+        }
+        //Polled worst first
+        Collections.reverse(repeats);
+        return repeats;
+    }
+
+    //Closes every interval longer than lcp at row i, offering each to best, and returns the first row of the
+    //last one closed (or i - 1 if none was)
+    private static int close(int i, int lcp, List<Interval> stack, Kind kind, PriorityQueue<Interval> best, int k,
+                             boolean leftDistinct, int lastLeftChange) {
+        int from = i - 1;
+        while (lcp < stack.get(stack.size() - 1).length) {
+            Interval interval = stack.remove(stack.size() - 1);
+            interval.to = i;
+            from = interval.from;
+            stack.get(stack.size() - 1).hasChild |= lcp <= stack.get(stack.size() - 1).length;
+            boolean leftDiverse = lastLeftChange > interval.from;
+            boolean keep = switch (kind) {
+                case REPEAT -> true;
+                case MAXIMAL -> leftDiverse;
+                case SUPERMAXIMAL -> !interval.hasChild && leftDistinct;
+            };
+            if (keep && k > 0) {
+                best.add(interval);
+                if (best.size() > k)
+                    best.poll();
+            }
+        }
+        return from;
+    }
+
+    private void addLeftChar(BitSet leftChars, boolean[] leftDistinct, int suffix) {
+        int c = leftChar(suffix);
+        if (c == UNIQUE)
+            return;
+        if (leftChars.get(c))
+            leftDistinct[0] = false;
+        leftChars.set(c);
+    }
+
+    //The char before suffix, or UNIQUE for the whole text, which no other occurrence can share
+    private int leftChar(int suffix) {
+        return suffix == 0 ? UNIQUE : source.charAt(suffix - 1);
+    }
+}
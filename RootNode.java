@@ -3,6 +3,10 @@ public class RootNode extends InternalNode {
         super();
     }
 
+    public RootNode(ChildMap edgesOut) {
+        super(edgesOut);
+    }
+
     @Override
     public boolean isRoot() {
         return true;
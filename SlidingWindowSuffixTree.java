@@ -0,0 +1,409 @@
+import java.util.Arrays;
+import java.util.stream.LongStream;
+
+//Suffix tree of the last windowSize chars of an unbounded stream (Larsson's sliding window suffix tree). Each
+//appended char is added with Ukkonen's Algorithm, after which the oldest suffix is deleted, so all storage is
+//allocated up front and stays flat: a circular text buffer and node arrays sized for windowSize + 1 leaves.
+//Positions are stream offsets held in longs, so they never wrap.
+//
+//Nodes are stored like in CompactSuffixTree, except that a node keeps the start of one occurrence of its path
+//(pos) instead of its edge label, the label being text[pos + parent depth, pos + depth). Leaves use their suffix
+//start. Internal labels are kept inside the window with Larsson's credit scheme: a new leaf refreshes its
+//parent's pos, and each internal node passes every second refresh it gets (and its pending one when it is
+//merged away) on to its parent. That keeps every internal pos newer than the oldest suffix whenever it is
+//deleted, at amortized O(1) per char however deep the tree is.
+public class SlidingWindowSuffixTree {
+    private static final int ROOT = 0;
+    private static final int LEAF = -1;
+    private static final int NONE = -1;
+
+    private final int windowSize;
+    //Holds text[tail, end), which is one char longer than the window between an append and its deletion
+    private final char[] buffer;
+    private long tail;
+    private long end;
+
+    private final long[] pos;
+    //String depth of internal nodes, LEAF for leaves
+    private final int[] depth;
+    private final int[] parent;
+    private final int[] suffixLink;
+    //Larsson's credit bits: whether an internal node holds a refresh it has not passed on to its parent yet
+    private final boolean[] credit;
+    private final int[] childCount;
+    private final int[] firstChild;
+    private final int[] nextSibling;
+    private final int[] previousSibling;
+    private final int[] freeNodes;
+    private int freeCount;
+    //The leaf of the suffix starting at each buffer slot, or NONE while that suffix is implicit
+    private final int[] leafAt;
+
+    //Open-addressed (parent, first char) -> child table; deletions shift later entries back
+    private final long[] childKeys;
+    private final int[] children;
+    private final int hashBits;
+
+    private int activeNode;
+    private long activeEdge;
+    private int activeLength;
+    private int remainder;
+    //Nodes visited by refresh, amortized a few per char
+    private long refreshSteps;
+
+    public SlidingWindowSuffixTree(int windowSize) {
+        if (windowSize < 1)
+            throw new IllegalArgumentException("windowSize must be positive, got " + windowSize);
+        this.windowSize = windowSize;
+        buffer = new char[windowSize + 1];
+        int capacity = 2 * (windowSize + 1) + 1;
+        pos = new long[capacity];
+        depth = new int[capacity];
+        parent = new int[capacity];
+        suffixLink = new int[capacity];
+        credit = new boolean[capacity];
+        childCount = new int[capacity];
+        firstChild = new int[capacity];
+        nextSibling = new int[capacity];
+        previousSibling = new int[capacity];
+        freeNodes = new int[capacity];
+        for (int node = capacity - 1; node > ROOT; --node)
+            freeNodes[freeCount++] = node;
+        leafAt = new int[buffer.length];
+        Arrays.fill(leafAt, NONE);
+        firstChild[ROOT] = NONE;
+
+        hashBits = Math.max(4, 64 - Long.numberOfLeadingZeros(capacity * 2L));
+        childKeys = new long[1 << hashBits];
+        Arrays.fill(childKeys, CompactSuffixTree.EMPTY);
+        children = new int[1 << hashBits];
+    }
+
+    public void append(char c) {
+        extend(c);
+        if (end - tail > windowSize) {
+            deleteOldest();
+            ++tail;
+        }
+    }
+
+    public void append(CharSequence chars) {
+        for (int i = 0; i < chars.length(); ++i)
+            append(chars.charAt(i));
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    public int length() {
+        return (int) (end - tail);
+    }
+
+    //Stream offset of the first char in the window
+    public long getStart() {
+        return tail;
+    }
+
+    //Stream offset just past the last char appended
+    public long getEnd() {
+        return end;
+    }
+
+    public int getNodeCount() {
+        return pos.length - freeCount;
+    }
+
+    long getRefreshSteps() {
+        return refreshSteps;
+    }
+
+    public boolean contains(CharSequence pattern) {
+        return locate(pattern) != NONE;
+    }
+
+    //Walks the matched subtree, so O(|pattern| + occurrences)
+    public int countOccurrences(CharSequence pattern) {
+        return (int) findAll(pattern).count();
+    }
+
+    //Stream offsets of every occurrence inside the window, in no particular order
+    public LongStream findAll(CharSequence pattern) {
+        int locus = locate(pattern);
+        if (locus == NONE)
+            return LongStream.empty();
+        LongStream.Builder occurrences = LongStream.builder();
+        int[] stack = new int[16];
+        int size = 0;
+        stack[size++] = locus;
+        while (size > 0) {
+            int node = stack[--size];
+            if (depth[node] == LEAF) {
+                occurrences.add(pos[node]);
+                continue;
+            }
+            for (int child = firstChild[node]; child != NONE; child = nextSibling[child]) {
+                if (size == stack.length)
+                    stack = Arrays.copyOf(stack, size * 2);
+                stack[size++] = child;
+            }
+        }
+        //The last remainder suffixes are still implicit and have no leaf, so they are matched directly
+        for (long start = end - remainder; start < end; ++start)
+            if (start + pattern.length() <= end && matchesAt(start, pattern))
+                occurrences.add(start);
+        return occurrences.build();
+    }
+
+    //The node at or just below the end of pattern's path, or NONE if pattern does not occur in the window
+    private int locate(CharSequence pattern) {
+        int node = ROOT;
+        int i = 0;
+        while (i < pattern.length()) {
+            int next = getChild(node, pattern.charAt(i));
+            if (next == ROOT)
+                return NONE;
+            long labelStart = pos[next] + depth[node];
+            long labelEnd = labelStart + edgeLength(next);
+            for (long j = labelStart; j < labelEnd && i < pattern.length(); ++j, ++i)
+                if (charAt(j) != pattern.charAt(i))
+                    return NONE;
+            node = next;
+        }
+        return node;
+    }
+
+    private boolean matchesAt(long start, CharSequence pattern) {
+        for (int i = 0; i < pattern.length(); ++i)
+            if (charAt(start + i) != pattern.charAt(i))
+                return false;
+        return true;
+    }
+
+    private void extend(char lastChar) {
+        buffer[slot(end)] = lastChar;
+        long index = end++;
+        int previousNode = ROOT;
+        ++remainder;
+        while (remainder > 0) {
+            if (activeLength == 0)
+                activeEdge = index;
+            char edgeChar = charAt(activeEdge);
+            int next = getChild(activeNode, edgeChar);
+            if (next == ROOT) {
+                //Case 1: no edge starts with this char, so hang a new leaf directly off the active node
+                attach(activeNode, edgeChar, newNode(index - remainder + 1, LEAF));
+                refresh(activeNode, index - remainder + 1);
+                if (previousNode != ROOT)
+                    suffixLink[previousNode] = activeNode;
+                previousNode = ROOT;
+            } else {
+                int length = edgeLength(next);
+                if (activeLength >= length) {
+                    //Skip/count down to the next node
+                    activeEdge += length;
+                    activeLength -= length;
+                    activeNode = next;
+                    continue;
+                }
+                long labelStart = pos[next] + depth[activeNode];
+                char splitChar = charAt(labelStart + activeLength);
+                if (splitChar == lastChar) {
+                    //Case 2: lastChar is already present along the edge, so the phase ends here
+                    if (previousNode != ROOT && activeNode != ROOT)
+                        suffixLink[previousNode] = activeNode;
+                    ++activeLength;
+                    break;
+                }
+                //Case 3: split the edge and hang a new leaf off the split point. The new suffix passes through
+                //the split, so its start is a fresh occurrence for it.
+                int split = newNode(index - remainder + 1, depth[activeNode] + activeLength);
+                //Already refreshed by the new leaf below it
+                credit[split] = true;
+                detach(activeNode, edgeChar, next);
+                attach(activeNode, edgeChar, split);
+                attach(split, splitChar, next);
+                attach(split, lastChar, newNode(index - remainder + 1, LEAF));
+                if (previousNode != ROOT)
+                    suffixLink[previousNode] = split;
+                previousNode = split;
+            }
+            --remainder;
+            if (activeNode == ROOT && activeLength > 0) {
+                --activeLength;
+                activeEdge = index - remainder + 1;
+            } else if (activeNode != ROOT) {
+                activeNode = suffixLink[activeNode];
+            }
+        }
+    }
+
+    //Deletes the suffix starting at tail, which is the longest in the window and therefore always a leaf
+    private void deleteOldest() {
+        int leaf = leafAt[slot(tail)];
+        leafAt[slot(tail)] = NONE;
+        int node = parent[leaf];
+        normalizeActivePoint();
+        if (remainder > 0 && activeNode == node && activeLength > 0 && getChild(node, charAt(activeEdge)) == leaf) {
+            //The longest implicit suffix ends on this leaf's edge and loses its only other occurrence, so it
+            //takes over the leaf instead. Shorter implicit suffixes still occur inside it.
+            long start = end - remainder;
+            pos[leaf] = start;
+            leafAt[slot(start)] = leaf;
+            refresh(node, start);
+            --remainder;
+            if (activeNode == ROOT) {
+                --activeLength;
+                activeEdge = end - activeLength;
+            } else {
+                activeNode = suffixLink[activeNode];
+            }
+        } else {
+            detach(node, firstChar(leaf), leaf);
+            freeNodes[freeCount++] = leaf;
+            if (node != ROOT && childCount[node] == 1)
+                merge(node);
+        }
+    }
+
+    //Refreshes node with start, the start of a new occurrence of its path, and passes every second refresh on up
+    private void refresh(int node, long start) {
+        for (; node != ROOT; node = parent[node]) {
+            ++refreshSteps;
+            pos[node] = Math.max(pos[node], start);
+            start = pos[node];
+            credit[node] = !credit[node];
+            if (credit[node])
+                return;
+        }
+    }
+
+    //Removes node, which has a single child left, joining its edges and passing on any credit it holds
+    private void merge(int node) {
+        int up = parent[node];
+        int child = firstChild[node];
+        char c = firstChar(node);
+        detach(node, firstChar(child), child);
+        detach(up, c, node);
+        attach(up, c, child);
+        if (activeNode == node) {
+            activeNode = up;
+            activeLength += depth[node] - depth[up];
+            activeEdge = end - activeLength;
+        }
+        freeNodes[freeCount++] = node;
+        if (credit[node])
+            refresh(up, Math.max(pos[node], pos[child]));
+    }
+
+    //Moves the active point down past any edges it has run off the end of
+    private void normalizeActivePoint() {
+        while (activeLength > 0) {
+            int next = getChild(activeNode, charAt(activeEdge));
+            int length = edgeLength(next);
+            if (activeLength < length)
+                return;
+            activeEdge += length;
+            activeLength -= length;
+            activeNode = next;
+        }
+    }
+
+    private int newNode(long start, int stringDepth) {
+        int node = freeNodes[--freeCount];
+        pos[node] = start;
+        depth[node] = stringDepth;
+        suffixLink[node] = ROOT;
+        credit[node] = false;
+        childCount[node] = 0;
+        firstChild[node] = NONE;
+        if (stringDepth == LEAF)
+            leafAt[slot(start)] = node;
+        return node;
+    }
+
+    private int nodeDepth(int node) {
+        return depth[node] == LEAF ? (int) (end - pos[node]) : depth[node];
+    }
+
+    private int edgeLength(int node) {
+        return nodeDepth(node) - depth[parent[node]];
+    }
+
+    private char firstChar(int node) {
+        return charAt(pos[node] + depth[parent[node]]);
+    }
+
+    private char charAt(long position) {
+        return buffer[slot(position)];
+    }
+
+    private int slot(long position) {
+        return (int) (position % buffer.length);
+    }
+
+    private void attach(int node, char c, int child) {
+        putChild(node, c, child);
+        parent[child] = node;
+        ++childCount[node];
+        previousSibling[child] = NONE;
+        nextSibling[child] = firstChild[node];
+        if (firstChild[node] != NONE)
+            previousSibling[firstChild[node]] = child;
+        firstChild[node] = child;
+    }
+
+    private void detach(int node, char c, int child) {
+        removeChild(node, c);
+        --childCount[node];
+        if (previousSibling[child] == NONE)
+            firstChild[node] = nextSibling[child];
+        else
+            nextSibling[previousSibling[child]] = nextSibling[child];
+        if (nextSibling[child] != NONE)
+            previousSibling[nextSibling[child]] = previousSibling[child];
+    }
+
+    //Returns ROOT when there is no such child, since the root is never anyone's child
+    private int getChild(int node, char c) {
+        long key = CompactSuffixTree.childKey(node, c);
+        int mask = childKeys.length - 1;
+        for (int i = CompactSuffixTree.slot(key, hashBits); ; i = (i + 1) & mask) {
+            if (childKeys[i] == key)
+                return children[i];
+            if (childKeys[i] == CompactSuffixTree.EMPTY)
+                return ROOT;
+        }
+    }
+
+    private void putChild(int node, char c, int child) {
+        long key = CompactSuffixTree.childKey(node, c);
+        int mask = childKeys.length - 1;
+        int i = CompactSuffixTree.slot(key, hashBits);
+        while (childKeys[i] != CompactSuffixTree.EMPTY && childKeys[i] != key)
+            i = (i + 1) & mask;
+        childKeys[i] = key;
+        children[i] = child;
+    }
+
+    //Linear-probing deletion: later entries of the probe run move back into the hole, so lookups never need
+    //tombstones
+    private void removeChild(int node, char c) {
+        long key = CompactSuffixTree.childKey(node, c);
+        int mask = childKeys.length - 1;
+        int hole = CompactSuffixTree.slot(key, hashBits);
+        while (childKeys[hole] != key)
+            hole = (hole + 1) & mask;
+        for (int i = (hole + 1) & mask; childKeys[i] != CompactSuffixTree.EMPTY; i = (i + 1) & mask) {
+            int home = CompactSuffixTree.slot(childKeys[i], hashBits);
+            //Entries whose home lies cyclically in (hole, i] are still reachable and stay put
+            boolean reachable = hole <= i ? hole < home && home <= i : hole < home || home <= i;
+            if (!reachable) {
+                childKeys[hole] = childKeys[i];
+                children[hole] = children[i];
+                hole = i;
+            }
+        }
+        childKeys[hole] = CompactSuffixTree.EMPTY;
+    }
+}
@@ -0,0 +1,85 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+//Small parallel arrays of keys and edges kept sorted by key. Nodes of most trees have only a few children, so
+//this is both the most compact representation and fast to scan; it grows into a HashChildMap when wide.
+public class SortedChildMap implements ChildMap {
+    static final int MAX_SIZE = 16;
+
+    private char[] keys;
+    private Edge[] edges;
+    private int size;
+
+    public SortedChildMap() {
+        keys = new char[2];
+        edges = new Edge[2];
+    }
+
+    @Override
+    public Edge get(char c) {
+        int i = indexOf(c);
+        return i >= 0 ? edges[i] : null;
+    }
+
+    @Override
+    public ChildMap put(char c, Edge edge) {
+        int i = indexOf(c);
+        if (i >= 0) {
+            edges[i] = edge;
+            return this;
+        }
+        if (size == MAX_SIZE) {
+            HashChildMap wide = new HashChildMap();
+            for (int j = 0; j < size; ++j)
+                wide.put(keys[j], edges[j]);
+            return wide.put(c, edge);
+        }
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, Math.min(MAX_SIZE, size * 2));
+            edges = Arrays.copyOf(edges, keys.length);
+        }
+        i = -i - 1;
+        System.arraycopy(keys, i, keys, i + 1, size - i);
+        System.arraycopy(edges, i, edges, i + 1, size - i);
+        keys[i] = c;
+        edges[i] = edge;
+        ++size;
+        return this;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterable<Edge> values() {
+        return () -> new Iterator<>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public Edge next() {
+                if (next >= size)
+                    throw new NoSuchElementException();
+                return edges[next++];
+            }
+        };
+    }
+
+    //Linear scan: at MAX_SIZE keys this beats a binary search's unpredictable branches
+    private int indexOf(char c) {
+        for (int i = 0; i < size; ++i) {
+            if (keys[i] == c)
+                return i;
+            if (keys[i] > c)
+                return -i - 1;
+        }
+        return -size - 1;
+    }
+}
@@ -0,0 +1,17 @@
+import java.util.stream.IntStream;
+
+//Substring queries over a fixed text, implemented by SuffixTree (fast, tens of bytes per char) and FMIndex
+//(compressed, a few bits per char), so callers can trade speed for memory without changing code
+public interface SubstringIndex {
+    int length();
+
+    boolean contains(CharSequence pattern);
+
+    int countOccurrences(CharSequence pattern);
+
+    //Start positions of every occurrence, in no particular order
+    IntStream findAll(CharSequence pattern);
+
+    //Counts the empty string too
+    long getNDistinctSubstrings();
+}
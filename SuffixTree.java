@@ -1,190 +1,629 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
 
-public static class SuffixTree {
-    private String source;
+public class SuffixTree implements SubstringIndex {
+    //Top-down work per char past which buildParallel (and LazySuffixTree) fall back to Ukkonen's Algorithm
+    static final long PARALLEL_WORK_PER_CHAR = 128;
+
+    public interface SuffixConsumer {
+        void accept(int suffix, int lcp);
+    }
+
+    public interface FactorConsumer {
+        //source is -1 for a literal: a char with no earlier occurrence, which always has length 1
+        void accept(int position, int length, int source);
+    }
+
+    private CharSequence source;
     private RootNode root;
     private InternalNode activeNode;
-    private Character activeEdge;
+    private char activeEdge;
     private int activeLength;
     private int remainder;
     private AtomicInteger endMarker;
+    private StringBuilder buffer;
+    private int annotatedLength;
+    private long nDistinctSubstrings;
+    private LongConsumer prefixCounts;
+    //Picks each node's child map representation; null until a source is known
+    private Alphabet alphabet;
+    private ConstructionListener listener;
 
-    private LinkedHashMap<Integer, Integer> suffixLinks;
+    //Builds an empty suffix tree to be extended with append
+    public SuffixTree() {
+        this(new StringBuilder());
+        buffer = (StringBuilder) source;
+    }
 
     //Builds a suffix tree using Ukkonen's Algorithm
-    public SuffixTree(String source) {
-        suffixLinks = new LinkedHashMap<>();
+    public SuffixTree(CharSequence source) {
+        this(source, null, null);
+    }
+
+    //Builds a suffix tree using Ukkonen's Algorithm, passing prefixCounts the number of distinct substrings of
+    //every prefix of source (including the empty string) as construction reaches it
+    public SuffixTree(CharSequence source, LongConsumer prefixCounts) {
+        this(source, prefixCounts, null);
+    }
+
+    //Builds a suffix tree using Ukkonen's Algorithm, reporting construction events (including those of later
+    //appends) to listener
+    public SuffixTree(CharSequence source, ConstructionListener listener) {
+        this(source, null, listener);
+    }
+
+    private SuffixTree(CharSequence source, LongConsumer prefixCounts, ConstructionListener listener) {
+        this.prefixCounts = prefixCounts;
+        this.listener = listener;
         this.source = source;
-        root = new RootNode();
+        if (source.length() > 0)
+            alphabet = Alphabet.of(source);
+        root = alphabet == null ? new RootNode() : new RootNode(alphabet.newChildMap());
         activeNode = root;
-        activeEdge = null;
+        activeEdge = '\0';
         activeLength = 0;
         remainder = 0;
         endMarker = new AtomicInteger(0);
+        nDistinctSubstrings = 1;
 
-        while (endMarker.get() != source.length()) {
-            ++remainder;
+        while (endMarker.get() != source.length())
+            extend();
 
-            //First: update all terminal edges
-            int i = endMarker.getAndIncrement();
+        annotateLeafCounts();
+        this.prefixCounts = null;
+    }
 
-            //Second: determine if insert is necessary, or update active points
-            update(i, null);
-        }
+    private SuffixTree(CharSequence source, RootNode root, AtomicInteger endMarker, int leaves) {
+        this.source = source;
+        this.root = root;
+        this.endMarker = endMarker;
+        //Suffixes without a leaf are exactly the implicit ones Ukkonen's Algorithm would leave pending
+        remainder = source.length() - leaves;
+        annotatedLength = -1;
+        annotateLeafCounts();
+        nDistinctSubstrings = TreeAggregation.aggregate(this, TreeAggregation.EDGE_LENGTH_SUM) + 1;
     }
 
-    public int getNDistinctSubstrings() {
-        ArrayDeque<Edge> edgeStack = new ArrayDeque<>();
-        for (Edge e : root.getEdgesOut().values())
-            edgeStack.push(e);
-        if (edgeStack.isEmpty())
-            return 1;
-        int sum = 0;
-        while (!edgeStack.isEmpty()) {
-            Edge top = edgeStack.pop();
-            sum += top.getLength();
-            if (top.getTo().isExplicit()) {
-                InternalNode iNode = (InternalNode) top.getTo();
-                for (Edge e : iNode.getEdgesOut().values())
-                    edgeStack.push(e);
-            }
+    //Distinct substring counts of every prefix of source, computed in a single O(n) construction pass:
+    //entry i is the count for source[0, i), including the empty string
+    public static long[] getPrefixDistinctSubstrings(CharSequence source) {
+        long[] counts = new long[source.length() + 1];
+        counts[0] = 1;
+        int[] length = {0};
+        new SuffixTree(source, count -> counts[++length[0]] = count);
+        return counts;
+    }
+
+    public static SuffixTree buildParallel(CharSequence source) {
+        return buildParallel(source, ForkJoinPool.commonPool());
+    }
+
+    //Builds the same tree top-down on pool, with suffixes partitioned by their leading chars into independent
+    //subtrees. The result answers every query like the sequential tree, but it has no suffix links, so it cannot
+    //be appended to.
+    //
+    //Top-down construction takes O(n * L) for a longest repeat of length L, which is quadratic on long runs or
+    //Fibonacci-like text (100K chars of one repeated char would take seconds instead of milliseconds). It is
+    //therefore stopped after PARALLEL_WORK_PER_CHAR char comparisons per char, and the tree is built with
+    //Ukkonen's Algorithm instead (with suffix links, so that one can be appended to). The worst case is thus the
+    //sequential build plus O(n) wasted work.
+    public static SuffixTree buildParallel(CharSequence source, ForkJoinPool pool) {
+        Alphabet alphabet = Alphabet.of(source);
+        RootNode root = new RootNode(alphabet.newChildMap());
+        AtomicInteger endMarker = new AtomicInteger(source.length());
+        long maxWork = PARALLEL_WORK_PER_CHAR * Math.max(source.length(), 1 << 10);
+        int leaves = TopDownBuilder.build(source, alphabet, root, endMarker, maxWork, pool);
+        if (leaves == TopDownBuilder.OVER_BUDGET)
+            return new SuffixTree(source);
+        return new SuffixTree(source, root, endMarker, leaves);
+    }
+
+    //Extends the tree by one char in amortized O(1); queries keep working between appends
+    public void append(char c) {
+        if (activeNode == null)
+            throw new IllegalStateException("Trees built with buildParallel have no active point to extend");
+        if (buffer == null) {
+            buffer = new StringBuilder(source);
+            source = buffer;
         }
-        return sum + 1;
+        buffer.append(c);
+        extend();
     }
 
-    public int getInternalNodeDepth() {
-        return getDeepestInternalNodeImpl(root);
+    public void append(CharSequence chars) {
+        for (int i = 0; i < chars.length(); ++i)
+            append(chars.charAt(i));
     }
 
-    private int getDeepestInternalNodeImpl(InternalNode iNode) {
-        return iNode.getEdgesOut().values().stream()
-                .filter(e -> e.getTo().isExplicit())
-                .mapToInt(e -> e.getLength() + getDeepestInternalNodeImpl((InternalNode) e.getTo()))
-                .max()
-                .orElseGet(() -> 0);
+    //Reports the construction events of later appends to listener, or stops reporting if it is null
+    public void setConstructionListener(ConstructionListener listener) {
+        this.listener = listener;
     }
 
-    private void update(int index, InternalNode previousNode) {
-        char lastChar = source.charAt(index);
+    @Override
+    public int length() {
+        return endMarker.get();
+    }
+
+    //Annotates leaf counts for the current text and returns a view of it at its current length. The view counts
+    //occurrences in O(|pattern|) until the next append, and keeps answering for the same text after it.
+    public SuffixTreeSnapshot snapshot() {
+        annotateLeafCounts();
+        return new SuffixTreeSnapshot(this);
+    }
+
+    @Override
+    public boolean contains(CharSequence pattern) {
+        return locate(pattern) != null;
+    }
+
+    //O(|pattern|) while leaf counts are annotated, which holds after construction and after snapshot();
+    //after an append the matched subtree is walked instead
+    @Override
+    public int countOccurrences(CharSequence pattern) {
+        Node locus = locate(pattern);
+        if (locus == null)
+            return 0;
+        return leafCount(locus) + countPendingOccurrences(pattern);
+    }
+
+    //Streams the start position of every occurrence, in no particular order
+    @Override
+    public IntStream findAll(CharSequence pattern) {
+        Node locus = locate(pattern);
+        if (locus == null)
+            return IntStream.empty();
+        int characteristics = Spliterator.DISTINCT | Spliterator.NONNULL | Spliterator.IMMUTABLE;
+        Spliterator.OfInt leaves = isAnnotated()
+                ? Spliterators.spliterator(new LeafIterator(locus), leafCount(locus), characteristics | Spliterator.SIZED)
+                : Spliterators.spliteratorUnknownSize(new LeafIterator(locus), characteristics);
+        return IntStream.concat(StreamSupport.intStream(leaves, false), pendingOccurrences(pattern));
+    }
+
+    //Counts the empty string too. Kept up to date during construction, so this is O(1); a long holds
+    //n(n+1)/2 + 1 for every int-indexed text, so it cannot overflow.
+    @Override
+    public long getNDistinctSubstrings() {
+        return nDistinctSubstrings;
+    }
+
+    public int getInternalNodeDepth() {
+        return (int) TreeAggregation.aggregate(this, TreeAggregation.MAX_INTERNAL_DEPTH);
+    }
+
+    //Visits the start of every suffix in lexicographic order, with the length of its longest common prefix with
+    //the previous one (0 for the first), in one DFS over the sorted edges. Suffixes still implicit in the tree are
+    //found by walking down from root first, which is cheap unless the text ends in a long repeat; a text ending
+    //in a unique terminator has none.
+    public void forEachSuffix(SuffixConsumer consumer) {
+        int length = endMarker.get();
+        IdentityHashMap<Edge, List<Integer>> pending = new IdentityHashMap<>();
+        for (int start = length - 1; start >= length - remainder; --start)
+            pending.computeIfAbsent(edgeEndingAt(start, length - start), e -> new ArrayList<>()).add(start);
 
-        //Update rule lambdas
-        Runnable rule1 = () -> {
-            if (activeNode.isRoot() && activeLength > 0) {
-                --activeLength;
-                activeEdge = source.charAt(index - activeLength);
+        Edge[] edges = new Edge[16];
+        int[] parentDepths = new int[16];
+        int top = 0;
+        List<Edge> children = new ArrayList<>();
+        InternalNode node = root;
+        int nodeDepth = 0;
+        int lcp = 0;
+        while (true) {
+            if (node != null) {
+                children.clear();
+                node.getEdgesOut().values().forEach(children::add);
+                if (top + children.size() > edges.length) {
+                    edges = Arrays.copyOf(edges, Math.max(edges.length * 2, top + children.size()));
+                    parentDepths = Arrays.copyOf(parentDepths, edges.length);
+                }
+                //Pushed in reverse, so the smallest child is visited first
+                for (int i = children.size() - 1; i >= 0; --i) {
+                    edges[top] = children.get(i);
+                    parentDepths[top++] = nodeDepth;
+                }
             }
-        };
+            if (top == 0)
+                return;
+            Edge edge = edges[--top];
+            edges[top] = null;
+            int parentDepth = parentDepths[top];
+            //Branching off at the parent bounds the common prefix with everything visited before
+            lcp = Math.min(lcp, parentDepth);
+            //Implicit suffixes ending on this edge are prefixes of everything below it, shortest first
+            for (int start : pending.getOrDefault(edge, List.of())) {
+                consumer.accept(start, lcp);
+                lcp = length - start;
+            }
+            if (edge.getTo().isLeaf()) {
+                int start = ((LeafNode) edge.getTo()).getSuffixIndex();
+                consumer.accept(start, lcp);
+                lcp = length - start;
+                node = null;
+            } else {
+                node = (InternalNode) edge.getTo();
+                nodeDepth = parentDepth + edge.getLength();
+            }
+        }
+    }
+
+    public int[] getSuffixArray() {
+        int[] suffixArray = new int[length()];
+        int[] i = {0};
+        forEachSuffix((suffix, lcp) -> suffixArray[i[0]++] = suffix);
+        return suffixArray;
+    }
+
+    //Entry i is the longest common prefix of suffixes getSuffixArray()[i - 1] and getSuffixArray()[i]; entry 0 is 0
+    public int[] getLcpArray() {
+        int[] lcpArray = new int[length()];
+        int[] i = {0};
+        forEachSuffix((suffix, lcp) -> lcpArray[i[0]++] = lcp);
+        return lcpArray;
+    }
 
-        Consumer<InternalNode> rule2 = iNode -> {
-            if (previousNode != null) {
-                previousNode.setSuffixLink(iNode);
-                suffixLinks.put(previousNode.getCreationNumber(), iNode.getCreationNumber());
+    //Visits the LZ77 factorization of the text in order: each factor is the longest prefix of the rest of the
+    //text that also starts earlier (the two may overlap), reported with its earliest source, or a literal when
+    //even the first char is new. A factor walks down the path of its own suffix while the next node's first
+    //occurrence is earlier, which takes at most one step per char it covers, so this is linear in the length.
+    public void forEachFactor(FactorConsumer consumer) {
+        annotateLeafCounts();
+        int length = endMarker.get();
+        int position = 0;
+        while (position < length) {
+            InternalNode node = root;
+            int factorLength = 0;
+            int factorSource = -1;
+            while (factorLength < length - position) {
+                Edge edge = node.getEdge(source.charAt(position + factorLength));
+                Node child = edge.getTo();
+                int first = child.isLeaf() ? ((LeafNode) child).getSuffixIndex()
+                        : ((InternalNode) child).getFirstOccurrence();
+                if (first >= position)
+                    break;
+                factorSource = first;
+                factorLength = Math.min(factorLength + edge.getLength(), length - position);
+                if (!child.isExplicit())
+                    break;
+                node = (InternalNode) child;
             }
-        };
+            if (factorLength == 0) {
+                consumer.accept(position++, 1, -1);
+            } else {
+                consumer.accept(position, factorLength, factorSource);
+                position += factorLength;
+            }
+        }
+    }
 
-        Runnable rule3 = () -> {
-            if (!activeNode.isRoot()) {
-                if (activeNode.hasSuffixLink())
-                    activeNode = activeNode.getSuffixLink();
-                else
-                    activeNode = root;
+    //Number of LZ77 factors, a measure of how repetitive the text is: about n / log_sigma(n) for random text over
+    //sigma chars, and far fewer for repetitive text
+    public int getFactorCount() {
+        int[] count = {0};
+        forEachFactor((position, length, factorSource) -> ++count[0]);
+        return count[0];
+    }
+
+    //Streams the suffix array and LCP array to two files of little-endian ints without materializing either,
+    //so texts whose arrays do not fit in memory next to the tree can still be exported
+    public void writeSuffixArray(Path suffixArrayPath, Path lcpArrayPath) throws IOException {
+        try (FileChannel suffixChannel = FileChannel.open(suffixArrayPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             FileChannel lcpChannel = FileChannel.open(lcpArrayPath, StandardOpenOption.CREATE,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer suffixBuffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+            ByteBuffer lcpBuffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+            try {
+                forEachSuffix((suffix, lcp) -> {
+                    if (!suffixBuffer.hasRemaining()) {
+                        flush(suffixChannel, suffixBuffer);
+                        flush(lcpChannel, lcpBuffer);
+                    }
+                    suffixBuffer.putInt(suffix);
+                    lcpBuffer.putInt(lcp);
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
             }
-        };
+            flush(suffixChannel, suffixBuffer);
+            flush(lcpChannel, lcpBuffer);
+        }
+    }
 
-        Consumer<InternalNode> allRules = iNode -> {
-            rule1.run();
-            rule2.accept(iNode);
-            rule3.run();
-        };
+    private static void flush(FileChannel channel, ByteBuffer buffer) {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.clear();
+    }
 
-        //Position validation lambda
-        Runnable checkPos = () -> {
-            if (activeEdge != null && activeNode.hasEdge(activeEdge)) {
-                Edge aEdge = activeNode.getEdge(activeEdge);
-                while (aEdge != null && activeLength >= aEdge.getLength()) {
-                    activeNode = (InternalNode) aEdge.getTo();
-                    activeLength -= aEdge.getLength();
-                    activeEdge = source.charAt(index - activeLength);
-                    aEdge = activeNode.getEdge(activeEdge);
+    //The root, with leaf counts and first occurrences annotated for the current text
+    RootNode getRoot() {
+        annotateLeafCounts();
+        return root;
+    }
+
+    CharSequence getSource() {
+        return source;
+    }
+
+    //Returns the node at or just below the end of pattern's path from root, or null if pattern does not occur
+    private Node locate(CharSequence pattern) {
+        Node node = root;
+        int i = 0;
+        while (i < pattern.length()) {
+            if (!node.isExplicit())
+                return null;
+            Edge edge = ((InternalNode) node).getEdge(pattern.charAt(i));
+            if (edge == null)
+                return null;
+            int end = edge.getEnd().get();
+            for (int j = edge.getStart(); j < end && i < pattern.length(); ++j, ++i)
+                if (source.charAt(j) != pattern.charAt(i))
+                    return null;
+            node = edge.getTo();
+        }
+        return node;
+    }
+
+    //The edge whose label holds the last char of source[start, start + length), which must occur in the tree
+    private Edge edgeEndingAt(int start, int length) {
+        InternalNode node = root;
+        int depth = 0;
+        while (true) {
+            Edge edge = node.getEdge(source.charAt(start + depth));
+            depth += edge.getLength();
+            if (depth >= length)
+                return edge;
+            node = (InternalNode) edge.getTo();
+        }
+    }
+
+    //Occurrences of pattern that end within the first limit chars. Appending only adds leaves and splits edges,
+    //so the tree still holds every occurrence in that prefix and the later ones just have to be dropped.
+    IntStream findAll(CharSequence pattern, int limit) {
+        int lastStart = limit - Math.max(pattern.length(), 1);
+        return findAll(pattern).filter(start -> start <= lastStart);
+    }
+
+    //How many of the last suffixes are still implicit and have no leaf
+    int getPendingSuffixes() {
+        return remainder;
+    }
+
+    //The last remainder suffixes are still implicit and have no leaf, so they are matched directly
+    IntStream pendingOccurrences(CharSequence pattern) {
+        int length = endMarker.get();
+        return IntStream.range(length - remainder, length)
+                .filter(start -> start + pattern.length() <= length && matchesAt(start, pattern));
+    }
+
+    int countPendingOccurrences(CharSequence pattern) {
+        int length = endMarker.get();
+        int count = 0;
+        for (int start = length - remainder; start < length; ++start)
+            if (start + pattern.length() <= length && matchesAt(start, pattern))
+                ++count;
+        return count;
+    }
+
+    private boolean matchesAt(int start, CharSequence pattern) {
+        for (int i = 0; i < pattern.length(); ++i)
+            if (source.charAt(start + i) != pattern.charAt(i))
+                return false;
+        return true;
+    }
+
+    private void extend() {
+        ++remainder;
+
+        //First: update all terminal edges
+        int i = endMarker.getAndIncrement();
+
+        //Second: determine if insert is necessary, or update active points
+        update(i);
+
+        //Of the i + 1 suffixes ending here, the remainder still pending already occurred earlier
+        nDistinctSubstrings += i + 1 - remainder;
+        if (prefixCounts != null)
+            prefixCounts.accept(nDistinctSubstrings);
+        if (listener != null)
+            listener.onPhaseEnd(i + 1, remainder);
+    }
+
+    private boolean isAnnotated() {
+        return annotatedLength == endMarker.get();
+    }
+
+    private int leafCount(Node locus) {
+        if (locus.isLeaf())
+            return 1;
+        if (isAnnotated())
+            return ((InternalNode) locus).getLeafCount();
+        int count = 0;
+        for (LeafIterator leaves = new LeafIterator(locus); leaves.hasNext(); leaves.nextInt())
+            ++count;
+        return count;
+    }
+
+    //Annotates every internal node's leaf count and first occurrence for the current text
+    private void annotateLeafCounts() {
+        if (isAnnotated())
+            return;
+        List<InternalNode> preorder = new ArrayList<>();
+        ArrayDeque<InternalNode> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            InternalNode iNode = stack.pop();
+            preorder.add(iNode);
+            for (Edge e : iNode.getEdgesOut().values())
+                if (e.getTo().isExplicit())
+                    stack.push((InternalNode) e.getTo());
+        }
+        for (int i = preorder.size() - 1; i >= 0; --i) {
+            InternalNode iNode = preorder.get(i);
+            int leafCount = 0;
+            int firstOccurrence = Integer.MAX_VALUE;
+            for (Edge e : iNode.getEdgesOut().values()) {
+                if (e.getTo().isLeaf()) {
+                    ++leafCount;
+                    firstOccurrence = Math.min(firstOccurrence, ((LeafNode) e.getTo()).getSuffixIndex());
+                } else {
+                    InternalNode child = (InternalNode) e.getTo();
+                    leafCount += child.getLeafCount();
+                    firstOccurrence = Math.min(firstOccurrence, child.getFirstOccurrence());
                 }
             }
-        };
-
-        Consumer<InternalNode> jumpLink = iNode -> {
-            iNode.setSuffixLink(activeNode);
-            suffixLinks.put(iNode.getCreationNumber(), activeNode.getCreationNumber());
-        };
-
-        if (activeEdge == null || activeLength == 0) {//do update directly at current node
-            //Case 1: lastChar is already present in this node, so just update active point
-            if (activeNode.hasEdge(lastChar)) {
-                if (previousNode != null)
-                    jumpLink.accept(previousNode);
-                ++activeLength;
-                activeEdge = lastChar;
-                checkPos.run();
-            } else { //Case 2: directly insert new edge into node, terminating in a leaf
-                Edge edge = new Edge(activeNode, new LeafNode(), index, endMarker);
+            iNode.setLeafCount(leafCount);
+            iNode.setFirstOccurrence(firstOccurrence);
+        }
+        annotatedLength = endMarker.get();
+    }
+
+    private void update(int index) {
+        char lastChar = source.charAt(index);
+        InternalNode previousNode = null;
+        while (true) {
+            if (activeLength == 0) {//do update directly at current node
+                //Case 1: lastChar is already present in this node, so just update active point
+                if (activeNode.hasEdge(lastChar)) {
+                    if (previousNode != null)
+                        previousNode.setSuffixLink(activeNode);
+                    ++activeLength;
+                    activeEdge = lastChar;
+                    walkDown(index);
+                    return;
+                }
+                //Case 2: directly insert new edge into node, terminating in a leaf
+                Edge edge = new Edge(activeNode, new LeafNode(index - remainder + 1), index, endMarker);
                 activeNode.addEdgeOut(lastChar, edge);
+                if (listener != null)
+                    listener.onLeafCreated();
                 InternalNode fromNode = activeNode;
                 --remainder;
-                allRules.accept(activeNode);
-                if (remainder > 0) {
-                    if (fromNode.isRoot())
-                        update(index, null);
-                    else
-                        update(index, fromNode);
+                applyRules(index, previousNode, activeNode);
+                previousNode = fromNode.isRoot() ? null : fromNode;
+            } else { //activePoint points to a point along an existing edge
+                Edge aEdge = activeNode.getEdge(activeEdge);
+                int pos = aEdge.getStart() + activeLength;
+                char activePointChar = source.charAt(pos);
+                //Case 1: this next point matches lastChar, so just update activeLength
+                if (activePointChar == lastChar) {
+                    if (previousNode != null)
+                        previousNode.setSuffixLink(activeNode);
+                    ++activeLength;
+                    walkDown(index);
+                    return;
                 }
-            }
-        } else { //activePoint points to a point along an existing edge
-            Edge aEdge = activeNode.getEdge(activeEdge);
-            int pos = aEdge.getStart() + activeLength;
-            char activePointChar = source.charAt(aEdge.getStart() + activeLength);
-            //Case 1: this next point matches lastChar, so just update activeLength
-            if (activePointChar == lastChar) {
-                if (previousNode != null)
-                    jumpLink.accept(previousNode);
-                ++activeLength;
-                checkPos.run();
-            } else { //Case 2: this edge needs to be split at this point
-                InternalNode iNode = new InternalNode();
+                //Case 2: this edge needs to be split at this point
+                InternalNode iNode = alphabet == null ? new InternalNode() : new InternalNode(alphabet.newChildMap());
                 iNode.addEdgeOut(activePointChar, new Edge(iNode, aEdge.getTo(), pos, aEdge.getEnd()));
-                iNode.addEdgeOut(lastChar, new Edge(iNode, new LeafNode(), index, endMarker));
+                iNode.addEdgeOut(lastChar, new Edge(iNode, new LeafNode(index - remainder + 1), index, endMarker));
                 aEdge.setEnd(new AtomicInteger(pos));
                 aEdge.setTo(iNode);
+                if (listener != null) {
+                    listener.onEdgeSplit();
+                    listener.onLeafCreated();
+                }
                 --remainder;
-                allRules.accept(iNode);
-                checkPos.run();
-                if (remainder > 0)
-                    update(index, iNode);
+                applyRules(index, previousNode, iNode);
+                walkDown(index);
+                previousNode = iNode;
+            }
+            if (remainder == 0)
+                return;
+        }
+    }
+
+    //Applies the three update rules after an insertion at iNode
+    private void applyRules(int index, InternalNode previousNode, InternalNode iNode) {
+        //Rule 1: an insertion at root shortens the active point by one
+        if (activeNode.isRoot() && activeLength > 0) {
+            --activeLength;
+            activeEdge = source.charAt(index - activeLength);
+        }
+        //Rule 2: link the previously inserted node to this one
+        if (previousNode != null)
+            previousNode.setSuffixLink(iNode);
+        //Rule 3: follow the suffix link, falling back to root
+        if (!activeNode.isRoot()) {
+            if (activeNode.hasSuffixLink()) {
+                activeNode = activeNode.getSuffixLink();
+                if (listener != null)
+                    listener.onSuffixLinkFollowed();
+            } else {
+                activeNode = root;
             }
         }
     }
 
+    //Moves the active point down past any edges it has run off the end of
+    private void walkDown(int index) {
+        if (activeLength == 0)
+            return;
+        Edge aEdge = activeNode.getEdge(activeEdge);
+        while (aEdge != null && activeLength >= aEdge.getLength()) {
+            if (listener != null)
+                listener.onWalkDownHop();
+            activeNode = (InternalNode) aEdge.getTo();
+            activeLength -= aEdge.getLength();
+            activeEdge = source.charAt(index - activeLength);
+            aEdge = activeNode.getEdge(activeEdge);
+        }
+    }
+
     //Print function based on the one found in this article:
     //https://www.baeldung.com/java-print-binary-tree-diagram
+    //Nodes are numbered in print order and suffix links are read off the nodes, so building keeps no debug state
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
-        traverseNode(sb, "", "", root, false);
+        LinkedHashMap<Node, Integer> ids = new LinkedHashMap<>();
+        traverseNode(sb, "", "", root, false, ids);
+        LinkedHashMap<Integer, Integer> suffixLinks = new LinkedHashMap<>();
+        ids.forEach((node, id) -> {
+            if (node.isExplicit() && ((InternalNode) node).hasSuffixLink())
+                suffixLinks.put(id, ids.get(((InternalNode) node).getSuffixLink()));
+        });
         sb.append(suffixLinks);
         return sb.toString();
     }
 
-    private void traverseNode(StringBuilder sb, String padding, String pointer, Node node, boolean nodeAfter) {
+    private void traverseNode(StringBuilder sb, String padding, String pointer, Node node, boolean nodeAfter,
+                              LinkedHashMap<Node, Integer> ids) {
         if (node != null) {
+            int id = ids.size() + 1;
+            ids.put(node, id);
             sb.append(padding);
             sb.append(pointer);
             if (node == activeNode)
                 sb.append('(');
             else
                 sb.append('[');
-            sb.append(node.getCreationNumber());
+            sb.append(id);
             if (node == activeNode)
                 sb.append(')');
             else
@@ -196,14 +635,15 @@ public static class SuffixTree {
 
             Consumer<String> nextCall = s -> {
                 InternalNode iNode = (InternalNode) node;
-                List<Edge> edgeList = new ArrayList<>(iNode.getEdgesOut().values());
+                List<Edge> edgeList = new ArrayList<>();
+                iNode.getEdgesOut().values().forEach(edgeList::add);
                 for (int i = 0; i < edgeList.size(); ++i) {
                     Edge edge = edgeList.get(i);
-                    String edgePointer = "<" + source.substring(edge.getStart(), edge.getEnd().get()) + ">──";
+                    String edgePointer = "<" + source.subSequence(edge.getStart(), edge.getEnd().get()) + ">──";
                     if (i == edgeList.size() - 1)
-                        traverseNode(sb, s, terminalPointer + edgePointer, edge.getTo(), false);
+                        traverseNode(sb, s, terminalPointer + edgePointer, edge.getTo(), false, ids);
                     else
-                        traverseNode(sb, s, linkPointer + edgePointer, edge.getTo(), true);
+                        traverseNode(sb, s, linkPointer + edgePointer, edge.getTo(), true, ids);
                 }
             };
 
@@ -211,7 +651,7 @@ public static class SuffixTree {
             if (node.isRoot()) {
                 nextCall.accept("");
             } else if (node.isExplicit()) {
-                int length = pointer.length() + Integer.toString(node.getCreationNumber()).length();
+                int length = pointer.length() + Integer.toString(id).length();
                 StringBuilder pb = new StringBuilder(padding);
                 if (nodeAfter)
                     pb.append("|" + " ".repeat(length));
@@ -221,4 +661,29 @@ public static class SuffixTree {
             }
         }
     }
+
+    private static class LeafIterator implements PrimitiveIterator.OfInt {
+        private final ArrayDeque<Node> stack = new ArrayDeque<>();
+
+        private LeafIterator(Node locus) {
+            if (locus.isLeaf() || !((InternalNode) locus).getEdgesOut().isEmpty())
+                stack.push(locus);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !stack.isEmpty();
+        }
+
+        @Override
+        public int nextInt() {
+            Node node = stack.pop();
+            while (node.isExplicit()) {
+                for (Edge e : ((InternalNode) node).getEdgesOut().values())
+                    stack.push(e.getTo());
+                node = stack.pop();
+            }
+            return ((LeafNode) node).getSuffixIndex();
+        }
+    }
 }
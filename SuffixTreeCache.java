@@ -0,0 +1,231 @@
+import java.lang.management.ManagementFactory;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+//Shares built suffix trees between requests for the same text. Trees are keyed by a 64-bit hash of the text and
+//its length, and a hit is confirmed by comparing the text with the tree's source, so a hash collision costs a
+//rebuild rather than a wrong tree. Trees are kept in an LRU cache whose estimated retained size is held under a
+//byte budget, and concurrent requests for a text that is being built wait for that build instead of starting
+//their own.
+//
+//Returned trees are shared, so they must not be appended to, and texts must not change once passed in.
+public class SuffixTreeCache implements SuffixTreeCacheMXBean {
+    //Estimated heap size of a tree's nodes and edges, with LazySuffixTree's per-node costs
+    private static final LongTreeAggregator RETAINED_BYTES = new LongTreeAggregator() {
+        public long identity() {
+            return 0;
+        }
+
+        public long combine(long left, long right) {
+            return left + right;
+        }
+
+        public long accumulate(Node node, int edgeLength, int stringDepth, long children) {
+            return children + (node.isLeaf() ? LazySuffixTree.LEAF_BYTES : LazySuffixTree.INTERNAL_NODE_BYTES);
+        }
+    };
+
+    private final long budgetBytes;
+    private final Function<CharSequence, SuffixTree> builder;
+    //Guarded by this, like the counters below
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final ConcurrentHashMap<Key, CompletableFuture<Entry>> loading = new ConcurrentHashMap<>();
+    private long cachedBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long loadWaits;
+
+    private static class Key {
+        private final long hash;
+        private final int length;
+
+        private Key(CharSequence text) {
+            length = text.length();
+            //FNV-1a over the chars
+            long h = 0xCBF29CE484222325L;
+            for (int i = 0; i < length; ++i)
+                h = (h ^ text.charAt(i)) * 0x100000001B3L;
+            hash = h;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof Key))
+                return false;
+            Key key = (Key) o;
+            return hash == key.hash && length == key.length;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(hash) * 31 + length;
+        }
+    }
+
+    private static class Entry {
+        private final SuffixTree tree;
+        private final long bytes;
+
+        private Entry(SuffixTree tree) {
+            this.tree = tree;
+            //The tree also retains its source, counted at 2 bytes per char
+            bytes = TreeAggregation.aggregate(tree, RETAINED_BYTES) + 2L * tree.length();
+        }
+
+        private boolean holds(CharSequence text) {
+            return CharSequence.compare(tree.getSource(), text) == 0;
+        }
+    }
+
+    //Caches trees built with Ukkonen's Algorithm
+    public SuffixTreeCache(long budgetBytes) {
+        this(budgetBytes, SuffixTree::new);
+    }
+
+    //Caches trees built by builder, e.g. SuffixTree::buildParallel
+    public SuffixTreeCache(long budgetBytes, Function<CharSequence, SuffixTree> builder) {
+        this.budgetBytes = budgetBytes;
+        this.builder = builder;
+    }
+
+    //Registers these metrics with the platform MBean server as SuffixTreeGenerator:type=SuffixTreeCache,name=name
+    public ObjectName register(String name) throws JMException {
+        ObjectName objectName = new ObjectName("SuffixTreeGenerator:type=SuffixTreeCache,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    //The cached tree for text, building it if needed. Exceptions from the builder reach every caller waiting on
+    //that build, and nothing is cached.
+    public SuffixTree get(CharSequence text) {
+        Key key = new Key(text);
+        Entry cached = lookup(key, text);
+        if (cached != null)
+            return cached.tree;
+
+        CompletableFuture<Entry> load = new CompletableFuture<>();
+        CompletableFuture<Entry> inFlight = loading.putIfAbsent(key, load);
+        if (inFlight != null) {
+            Entry entry = await(inFlight);
+            if (!entry.holds(text))
+                //A different text with the same key; built without caching so the other one is not evicted
+                return builder.apply(text);
+            synchronized (this) {
+                ++loadWaits;
+            }
+            return entry.tree;
+        }
+        try {
+            //A build of the same text may have finished between the lookup and putIfAbsent
+            cached = lookup(key, text);
+            if (cached != null) {
+                load.complete(cached);
+                return cached.tree;
+            }
+            synchronized (this) {
+                ++misses;
+            }
+            Entry entry = new Entry(builder.apply(text));
+            add(key, entry);
+            load.complete(entry);
+            return entry.tree;
+        } catch (RuntimeException | Error e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, load);
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        cachedBytes = 0;
+    }
+
+    @Override
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    @Override
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    @Override
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    //Requests that waited for another thread's build of the same text instead of building it again
+    @Override
+    public synchronized long getLoadWaits() {
+        return loadWaits;
+    }
+
+    @Override
+    public synchronized long getCachedBytes() {
+        return cachedBytes;
+    }
+
+    @Override
+    public synchronized int getCachedTrees() {
+        return entries.size();
+    }
+
+    @Override
+    public long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    //The text comparison runs outside the lock, so hits on large texts do not hold up other callers
+    private Entry lookup(Key key, CharSequence text) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+        }
+        if (entry == null || !entry.holds(text))
+            return null;
+        synchronized (this) {
+            ++hits;
+        }
+        return entry;
+    }
+
+    //Caches entry, replacing any tree with the same key, then evicts the least recently used trees while over
+    //budget. A tree larger than the whole budget is still cached until the next one is added.
+    private synchronized void add(Key key, Entry entry) {
+        Entry replaced = entries.put(key, entry);
+        if (replaced != null)
+            cachedBytes -= replaced.bytes;
+        cachedBytes += entry.bytes;
+        Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+        while (cachedBytes > budgetBytes && entries.size() > 1) {
+            cachedBytes -= eldest.next().getValue().bytes;
+            eldest.remove();
+            ++evictions;
+        }
+    }
+
+    private static Entry await(CompletableFuture<Entry> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error)
+                throw (Error) e.getCause();
+            throw e;
+        }
+    }
+}
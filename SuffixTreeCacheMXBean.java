@@ -0,0 +1,16 @@
+//JMX view of a SuffixTreeCache, see SuffixTreeCache.register
+public interface SuffixTreeCacheMXBean {
+    long getHits();
+
+    long getMisses();
+
+    long getEvictions();
+
+    long getLoadWaits();
+
+    long getCachedBytes();
+
+    int getCachedTrees();
+
+    long getBudgetBytes();
+}
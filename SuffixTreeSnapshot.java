@@ -0,0 +1,59 @@
+import java.util.stream.IntStream;
+
+//Read-only view of a SuffixTree's text at the length it had when the view was taken. Until the tree is appended
+//to, queries are those of the tree, with countOccurrences in O(|pattern|). After that they match against the
+//grown tree and drop occurrences reaching past the snapshot's length, in O(|pattern| + occurrences in the
+//whole text). Queries must not run concurrently with an append.
+public class SuffixTreeSnapshot implements SubstringIndex {
+    private final SuffixTree tree;
+    private final int length;
+    //Both need the tree as it was, so they are taken up front
+    private final long nDistinctSubstrings;
+    private final int internalNodeDepth;
+
+    SuffixTreeSnapshot(SuffixTree tree) {
+        this.tree = tree;
+        this.length = tree.length();
+        nDistinctSubstrings = tree.getNDistinctSubstrings();
+        internalNodeDepth = tree.getInternalNodeDepth();
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public boolean contains(CharSequence pattern) {
+        if (isCurrent() || pattern.length() == 0)
+            return tree.contains(pattern);
+        return tree.findAll(pattern, length).findAny().isPresent();
+    }
+
+    @Override
+    public int countOccurrences(CharSequence pattern) {
+        if (isCurrent())
+            return tree.countOccurrences(pattern);
+        return (int) tree.findAll(pattern, length).count();
+    }
+
+    @Override
+    public IntStream findAll(CharSequence pattern) {
+        if (isCurrent())
+            return tree.findAll(pattern);
+        return tree.findAll(pattern, length);
+    }
+
+    @Override
+    public long getNDistinctSubstrings() {
+        return nDistinctSubstrings;
+    }
+
+    public int getInternalNodeDepth() {
+        return internalNodeDepth;
+    }
+
+    private boolean isCurrent() {
+        return tree.length() == length;
+    }
+}
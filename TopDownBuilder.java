@@ -0,0 +1,196 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Builds suffix trees top-down (write-only-top-down style): suffixes sharing a prefix are grouped by their next
+//char, each group's longest common prefix becomes an edge, and groups of one suffix become leaves. Groups are
+//independent, so large ones are built as separate fork/join tasks. As with Ukkonen's Algorithm on a source
+//without a unique terminator, suffixes that are prefixes of other suffixes stay implicit and get no leaf.
+//Nodes built this way have no suffix links.
+//
+//Each suffix costs about one char comparison per level of the tree it passes through and per char of the edges
+//it shares, so building takes O(n * L) for a longest repeat of length L: near O(n log n) on typical text, but
+//quadratic on long runs or Fibonacci-like text. Callers that can build some other way instead bound the work.
+class TopDownBuilder {
+    //Returned by build when maxWork was exceeded; the partial tree is then left unfinished
+    static final int OVER_BUDGET = -1;
+
+    private static final int FORK_THRESHOLD = 1 << 13;
+    //Work a task counts locally before charging it to the shared budget
+    private static final int CHARGE_INTERVAL = 1 << 16;
+
+    //Hangs the suffix tree of source under root, with child maps from alphabet, and returns the number of leaves
+    //created, or OVER_BUDGET once more than maxWork char comparisons were made
+    static int build(CharSequence source, Alphabet alphabet, InternalNode root, AtomicInteger endMarker, long maxWork,
+                     ForkJoinPool pool) {
+        int[] suffixes = new int[source.length()];
+        for (int i = 0; i < suffixes.length; ++i)
+            suffixes[i] = i;
+        return build(source, alphabet, root, endMarker, suffixes, 0, suffixes.length, 0, maxWork, pool);
+    }
+
+    //Hangs the subtree of suffixes[from, to) under parent, like build above. Those suffixes must share their first
+    //depth chars and be longer than depth; the range is reordered in place.
+    static int build(CharSequence source, Alphabet alphabet, InternalNode parent, AtomicInteger endMarker,
+                     int[] suffixes, int from, int to, int depth, long maxWork, ForkJoinPool pool) {
+        if (from == to)
+            return 0;
+        WorkBudget budget = new WorkBudget(maxWork);
+        BuildTask task = new BuildTask(source, alphabet, endMarker, suffixes, budget, new Job(parent, from, to, depth));
+        int leaves = pool.invoke(task);
+        return budget.exceeded ? OVER_BUDGET : leaves;
+    }
+
+    //Char comparisons made so far by all tasks of one build
+    private static class WorkBudget {
+        private final long limit;
+        private final AtomicLong used = new AtomicLong();
+        private volatile boolean exceeded;
+
+        private WorkBudget(long limit) {
+            this.limit = limit;
+        }
+    }
+
+    private static class Job {
+        private final InternalNode parent;
+        private final int from;
+        private final int to;
+        private final int depth;
+
+        private Job(InternalNode parent, int from, int to, int depth) {
+            this.parent = parent;
+            this.from = from;
+            this.to = to;
+            this.depth = depth;
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static class BuildTask extends RecursiveTask<Integer> {
+        private final CharSequence source;
+        private final Alphabet alphabet;
+        private final AtomicInteger endMarker;
+        private final int[] suffixes;
+        private final WorkBudget budget;
+        private final Job root;
+        private long[] keys;
+        //Work not yet charged to budget
+        private long work;
+
+        private BuildTask(CharSequence source, Alphabet alphabet, AtomicInteger endMarker, int[] suffixes,
+                          WorkBudget budget, Job root) {
+            this.source = source;
+            this.alphabet = alphabet;
+            this.endMarker = endMarker;
+            this.suffixes = suffixes;
+            this.budget = budget;
+            this.root = root;
+        }
+
+        @Override
+        protected Integer compute() {
+            keys = new long[root.to - root.from];
+            List<BuildTask> forks = new ArrayList<>();
+            ArrayDeque<Job> jobs = new ArrayDeque<>();
+            jobs.push(root);
+            int leaves = 0;
+            while (!jobs.isEmpty() && !budget.exceeded) {
+                Job job = jobs.pop();
+                int size = job.to - job.from;
+                //Only fork groups at most half this task's size, so nested tasks (and their keys) shrink geometrically
+                if (job != root && size >= FORK_THRESHOLD && size * 2 <= keys.length) {
+                    BuildTask task = new BuildTask(source, alphabet, endMarker, suffixes, budget, job);
+                    task.fork();
+                    forks.add(task);
+                } else {
+                    leaves += branch(job, jobs);
+                }
+            }
+            keys = null;
+            charge(0, true);
+            for (BuildTask task : forks)
+                leaves += task.join();
+            return leaves;
+        }
+
+        //Adds work, charging it to the budget every CHARGE_INTERVAL units (or now, if flush) and returning whether
+        //the budget still holds
+        private boolean charge(long units, boolean flush) {
+            work += units;
+            if (work >= CHARGE_INTERVAL || flush) {
+                if (budget.used.addAndGet(work) > budget.limit)
+                    budget.exceeded = true;
+                work = 0;
+            }
+            return !budget.exceeded;
+        }
+
+        //Creates the children of job.parent, queueing a job for every new internal node. Stops early once the
+        //budget is exceeded.
+        private int branch(Job job, ArrayDeque<Job> jobs) {
+            if (!charge(job.to - job.from, false))
+                return 0;
+            int offset = root.from;
+            for (int i = job.from; i < job.to; ++i)
+                keys[i - offset] = ((long) source.charAt(suffixes[i] + job.depth) << 32) | suffixes[i];
+            Arrays.sort(keys, job.from - offset, job.to - offset);
+            for (int i = job.from; i < job.to; ++i)
+                suffixes[i] = (int) keys[i - offset];
+
+            int leaves = 0;
+            int n = source.length();
+            for (int a = job.from; a < job.to; ) {
+                char c = source.charAt(suffixes[a] + job.depth);
+                int b = a + 1;
+                while (b < job.to && source.charAt(suffixes[b] + job.depth) == c)
+                    ++b;
+
+                //Extend the group's common prefix, dropping the (at most one) suffix that ends at each length
+                int end = b;
+                int length = job.depth + 1;
+                while (end - a > 1) {
+                    //A single group can share a prefix of length O(n), so the budget is checked here too
+                    if (!charge(2L * (end - a), false))
+                        return leaves;
+                    for (int i = a; i < end; ++i) {
+                        if (suffixes[i] + length == n) {
+                            int ended = suffixes[i];
+                            suffixes[i] = suffixes[--end];
+                            suffixes[end] = ended;
+                            break;
+                        }
+                    }
+                    if (end - a == 1 || !sameCharAt(a, end, length))
+                        break;
+                    ++length;
+                }
+
+                int start = suffixes[a] + job.depth;
+                if (end - a == 1) {
+                    job.parent.addEdgeOut(c, new Edge(job.parent, new LeafNode(suffixes[a]), start, endMarker));
+                    ++leaves;
+                } else {
+                    InternalNode iNode = new InternalNode(alphabet.newChildMap());
+                    job.parent.addEdgeOut(c, new Edge(job.parent, iNode, start, new AtomicInteger(suffixes[a] + length)));
+                    jobs.push(new Job(iNode, a, end, length));
+                }
+                a = b;
+            }
+            return leaves;
+        }
+
+        private boolean sameCharAt(int from, int to, int depth) {
+            char c = source.charAt(suffixes[from] + depth);
+            for (int i = from + 1; i < to; ++i)
+                if (source.charAt(suffixes[i] + depth) != c)
+                    return false;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+//Evaluates LongTreeAggregators over a suffix tree with an explicit stack, so deep trees cannot overflow the
+//call stack. Wherever a node has several heavy children (by annotated leaf count), all but the heaviest are
+//forked as fork/join tasks; each forked subtree is at most half its parent's size, so task nesting stays
+//logarithmic.
+public class TreeAggregation {
+    private static final int SPLIT_THRESHOLD = 1 << 13;
+
+    //Sum of all edge lengths, i.e. the number of distinct non-empty substrings
+    public static final LongTreeAggregator EDGE_LENGTH_SUM = new LongTreeAggregator() {
+        public long identity() {
+            return 0;
+        }
+
+        public long combine(long left, long right) {
+            return left + right;
+        }
+
+        public long accumulate(Node node, int edgeLength, int stringDepth, long children) {
+            return children + edgeLength;
+        }
+    };
+
+    //String depth of the deepest internal node, i.e. the length of the longest right-branching repeat
+    public static final LongTreeAggregator MAX_INTERNAL_DEPTH = new LongTreeAggregator() {
+        public long identity() {
+            return 0;
+        }
+
+        public long combine(long left, long right) {
+            return Math.max(left, right);
+        }
+
+        public long accumulate(Node node, int edgeLength, int stringDepth, long children) {
+            return node.isExplicit() ? Math.max(children, stringDepth) : children;
+        }
+    };
+
+    public static final LongTreeAggregator LEAF_COUNT = new LongTreeAggregator() {
+        public long identity() {
+            return 0;
+        }
+
+        public long combine(long left, long right) {
+            return left + right;
+        }
+
+        public long accumulate(Node node, int edgeLength, int stringDepth, long children) {
+            return node.isLeaf() ? 1 : children;
+        }
+    };
+
+    public static long aggregate(SuffixTree tree, LongTreeAggregator aggregator) {
+        return aggregate(tree, aggregator, ForkJoinPool.commonPool());
+    }
+
+    public static long aggregate(SuffixTree tree, LongTreeAggregator aggregator, ForkJoinPool pool) {
+        RootNode root = tree.getRoot();
+        AggregateTask task = new AggregateTask(aggregator, root, 0, 0);
+        if (root.getLeafCount() < SPLIT_THRESHOLD)
+            return task.compute();
+        return pool.invoke(task);
+    }
+
+    private static int weight(Node node) {
+        return node.isLeaf() ? 1 : ((InternalNode) node).getLeafCount();
+    }
+
+    private static class Frame {
+        private final InternalNode node;
+        private final int edgeLength;
+        private final int stringDepth;
+        private final Iterator<Edge> edges;
+        private List<Edge> forkedEdges;
+        private List<AggregateTask> forks;
+        private long children;
+
+        private Frame(InternalNode node, int edgeLength, int stringDepth, LongTreeAggregator aggregator) {
+            this.node = node;
+            this.edgeLength = edgeLength;
+            this.stringDepth = stringDepth;
+            this.edges = node.getEdgesOut().values().iterator();
+            this.children = aggregator.identity();
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static class AggregateTask extends RecursiveTask<Long> {
+        private final LongTreeAggregator aggregator;
+        private final Node node;
+        private final int edgeLength;
+        private final int stringDepth;
+
+        private AggregateTask(LongTreeAggregator aggregator, Node node, int edgeLength, int stringDepth) {
+            this.aggregator = aggregator;
+            this.node = node;
+            this.edgeLength = edgeLength;
+            this.stringDepth = stringDepth;
+        }
+
+        @Override
+        protected Long compute() {
+            if (node.isLeaf())
+                return aggregator.accumulate(node, edgeLength, stringDepth, aggregator.identity());
+            ArrayDeque<Frame> stack = new ArrayDeque<>();
+            stack.push(push((InternalNode) node, edgeLength, stringDepth));
+            while (true) {
+                Frame frame = stack.peek();
+                if (frame.edges.hasNext()) {
+                    Edge edge = frame.edges.next();
+                    if (frame.forkedEdges != null && frame.forkedEdges.contains(edge))
+                        continue;
+                    Node child = edge.getTo();
+                    int depth = frame.stringDepth + edge.getLength();
+                    if (child.isLeaf()) {
+                        long result = aggregator.accumulate(child, edge.getLength(), depth, aggregator.identity());
+                        frame.children = aggregator.combine(frame.children, result);
+                    } else {
+                        stack.push(push((InternalNode) child, edge.getLength(), depth));
+                    }
+                    continue;
+                }
+                stack.pop();
+                long children = frame.children;
+                if (frame.forks != null)
+                    for (AggregateTask fork : frame.forks)
+                        children = aggregator.combine(children, fork.join());
+                long result = aggregator.accumulate(frame.node, frame.edgeLength, frame.stringDepth, children);
+                if (stack.isEmpty())
+                    return result;
+                stack.peek().children = aggregator.combine(stack.peek().children, result);
+            }
+        }
+
+        //Creates the frame for iNode, forking every heavy child but the heaviest
+        private Frame push(InternalNode iNode, int edgeLength, int stringDepth) {
+            Frame frame = new Frame(iNode, edgeLength, stringDepth, aggregator);
+            if (iNode.getLeafCount() < 2 * SPLIT_THRESHOLD)
+                return frame;
+            Edge heaviest = null;
+            for (Edge edge : iNode.getEdgesOut().values()) {
+                if (weight(edge.getTo()) < SPLIT_THRESHOLD)
+                    continue;
+                if (heaviest == null || weight(edge.getTo()) > weight(heaviest.getTo())) {
+                    if (heaviest != null)
+                        fork(frame, heaviest, stringDepth);
+                    heaviest = edge;
+                } else {
+                    fork(frame, edge, stringDepth);
+                }
+            }
+            return frame;
+        }
+
+        private void fork(Frame frame, Edge edge, int stringDepth) {
+            AggregateTask task = new AggregateTask(aggregator, edge.getTo(), edge.getLength(), stringDepth + edge.getLength());
+            task.fork();
+            if (frame.forks == null) {
+                frame.forkedEdges = new ArrayList<>();
+                frame.forks = new ArrayList<>();
+            }
+            frame.forkedEdges.add(edge);
+            frame.forks.add(task);
+        }
+    }
+}
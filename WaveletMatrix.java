@@ -0,0 +1,78 @@
+//Sequence of small ints (codes below 1 << bits) supporting access and rank in O(bits), stored as one
+//RankBitVector per bit. Level l holds bit (bits - 1 - l) of every code, in the order left by stably
+//partitioning the previous level on its bit.
+class WaveletMatrix {
+    private final RankBitVector[] levels;
+    private final int[] zeros;
+    private final int bits;
+
+    WaveletMatrix(int[] codes, int bits) {
+        this.bits = bits;
+        levels = new RankBitVector[bits];
+        zeros = new int[bits];
+        int n = codes.length;
+        int[] current = codes.clone();
+        int[] next = new int[n];
+        for (int l = 0; l < bits; ++l) {
+            int shift = bits - 1 - l;
+            long[] words = RankBitVector.newWords(n);
+            int z = 0;
+            for (int i = 0; i < n; ++i)
+                if ((current[i] >>> shift & 1) == 0)
+                    ++z;
+            int zi = 0;
+            int oi = z;
+            for (int i = 0; i < n; ++i) {
+                if ((current[i] >>> shift & 1) == 0) {
+                    next[zi++] = current[i];
+                } else {
+                    words[i >>> 6] |= 1L << i;
+                    next[oi++] = current[i];
+                }
+            }
+            levels[l] = new RankBitVector(words, n);
+            zeros[l] = z;
+            int[] swap = current;
+            current = next;
+            next = swap;
+        }
+    }
+
+    int access(int i) {
+        int code = 0;
+        for (int l = 0; l < bits; ++l) {
+            RankBitVector level = levels[l];
+            if (level.get(i)) {
+                code = code << 1 | 1;
+                i = zeros[l] + level.rank1(i);
+            } else {
+                code <<= 1;
+                i = level.rank0(i);
+            }
+        }
+        return code;
+    }
+
+    //Occurrences of code in [0, i)
+    int rank(int code, int i) {
+        int from = 0;
+        for (int l = 0; l < bits; ++l) {
+            RankBitVector level = levels[l];
+            if ((code >>> (bits - 1 - l) & 1) != 0) {
+                from = zeros[l] + level.rank1(from);
+                i = zeros[l] + level.rank1(i);
+            } else {
+                from = level.rank0(from);
+                i = level.rank0(i);
+            }
+        }
+        return i - from;
+    }
+
+    long sizeInBytes() {
+        long size = 0;
+        for (RankBitVector level : levels)
+            size += level.sizeInBytes();
+        return size;
+    }
+}
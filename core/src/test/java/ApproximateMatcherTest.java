@@ -0,0 +1,87 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class ApproximateMatcherTest {
+    @Test
+    void rejectsNegativeK() {
+        ApproximateMatcher matcher = new ApproximateMatcher(new SuffixTree("abc"));
+        assertThrows(IllegalArgumentException.class, () -> matcher.findWithMismatches("a", -1));
+        assertThrows(IllegalArgumentException.class, () -> matcher.findWithEdits("a", -1));
+    }
+
+    @Test
+    void findsMismatchesAndEdits() {
+        ApproximateMatcher matcher = new ApproximateMatcher(new SuffixTree("abcabdacd"));
+        assertArrayEquals(new int[]{0, 3}, matcher.findWithMismatches("abx", 1).sorted().toArray());
+        assertArrayEquals(new int[]{0, 3, 6}, matcher.findWithMismatches("abd", 1).sorted().toArray());
+        //"abc" and "abd" are one deletion from "abcd", and "acd" is too
+        assertArrayEquals(new int[]{0, 3, 6}, matcher.findWithEdits("abcd", 1).sorted().toArray());
+        assertArrayEquals(new int[]{3}, matcher.findWithEdits("abd", 0).toArray());
+    }
+
+    //Built in one go and appended char by char, the latter leaving implicit suffixes to be matched directly
+    @Test
+    void matchesBruteForceOnRandomText() {
+        Random random = new Random(23);
+        for (int trial = 0; trial < 6_000; ++trial) {
+            int alphabetSize = 1 + random.nextInt(4);
+            String text = randomString(random, random.nextInt(50), alphabetSize);
+            SuffixTree tree;
+            if (trial % 2 == 0) {
+                tree = new SuffixTree(text);
+            } else {
+                tree = new SuffixTree();
+                tree.append(text);
+            }
+            ApproximateMatcher matcher = new ApproximateMatcher(tree);
+            //Patterns may use a char that is not in the text
+            String pattern = randomString(random, random.nextInt(7), alphabetSize + 1);
+            int k = random.nextInt(4);
+            String context = text + " " + pattern + " k=" + k;
+
+            //Starts are positions of the text, even for the empty pattern
+            int[] mismatches = IntStream.range(0, text.length())
+                    .filter(i -> i + pattern.length() <= text.length())
+                    .filter(i -> hammingDistance(text.substring(i, i + pattern.length()), pattern) <= k)
+                    .toArray();
+            assertArrayEquals(mismatches, matcher.findWithMismatches(pattern, k).sorted().toArray(), context);
+
+            int[] edits = IntStream.range(0, text.length())
+                    .filter(i -> IntStream.rangeClosed(i, text.length())
+                            .anyMatch(j -> editDistance(text.substring(i, j), pattern) <= k))
+                    .toArray();
+            assertArrayEquals(edits, matcher.findWithEdits(pattern, k).sorted().toArray(), context);
+        }
+    }
+
+    private static int hammingDistance(String a, String b) {
+        int distance = 0;
+        for (int i = 0; i < a.length(); ++i)
+            if (a.charAt(i) != b.charAt(i))
+                ++distance;
+        return distance;
+    }
+
+    private static int editDistance(String a, String b) {
+        int[][] distance = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); ++i)
+            for (int j = 0; j <= b.length(); ++j)
+                if (i == 0 || j == 0)
+                    distance[i][j] = i + j;
+                else
+                    distance[i][j] = Math.min(Math.min(distance[i - 1][j], distance[i][j - 1]) + 1,
+                            distance[i - 1][j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1));
+        return distance[a.length()][b.length()];
+    }
+
+    private static String randomString(Random random, int length, int alphabetSize) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < length; ++i)
+            builder.append((char) ('a' + random.nextInt(alphabetSize)));
+        return builder.toString();
+    }
+}
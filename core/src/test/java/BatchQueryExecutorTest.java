@@ -0,0 +1,88 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class BatchQueryExecutorTest {
+    //The large alphabet leaves room for only a few chars in each sort key
+    private static final String[] ALPHABETS = {"a", "ab", "acgt", "abcdefghijklmnopqrstuvwxyz0123456789é中"};
+
+    @Test
+    void matchesBruteForceInInputOrder() {
+        Random random = new Random(17);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int trial = 0; trial < 200; ++trial) {
+                String alphabet = ALPHABETS[random.nextInt(ALPHABETS.length)];
+                String text = randomString(random, random.nextInt(200), alphabet);
+                //Appending leaves the leaf counts stale until the batch annotates them
+                SuffixTree tree;
+                if (random.nextBoolean()) {
+                    tree = new SuffixTree(text);
+                } else {
+                    tree = new SuffixTree();
+                    tree.append(text);
+                }
+                //Sometimes more than one chunk, so the batch is split across the pool
+                List<String> patterns = patterns(random, text, alphabet, random.nextInt(4) == 0 ? 3_000 : 50);
+                BatchQueryExecutor executor = new BatchQueryExecutor(tree, pool);
+                boolean[] contains = executor.contains(patterns);
+                int[] counts = executor.countOccurrences(patterns);
+                int[][] occurrences = executor.findAll(patterns);
+                assertEquals(patterns.size(), contains.length);
+                for (int i = 0; i < patterns.size(); ++i) {
+                    String pattern = patterns.get(i);
+                    int[] expected = pattern.isEmpty()
+                            ? IntStream.range(0, text.length()).toArray()
+                            : IntStream.rangeClosed(0, text.length() - pattern.length())
+                                    .filter(p -> text.startsWith(pattern, p))
+                                    .toArray();
+                    String context = text + " " + pattern + " at " + i;
+                    assertArrayEquals(expected, IntStream.of(occurrences[i]).sorted().toArray(), context);
+                    assertEquals(expected.length, counts[i], context);
+                    assertEquals(expected.length > 0 || pattern.isEmpty(), contains[i], context);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void handlesAnEmptyBatch() {
+        BatchQueryExecutor executor = new BatchQueryExecutor(new SuffixTree("banana"));
+        assertEquals(0, executor.contains(List.of()).length);
+        assertEquals(0, executor.countOccurrences(List.of()).length);
+        assertEquals(0, executor.findAll(List.of()).length);
+    }
+
+    //Substrings of the text and their extensions share long prefixes; random patterns, with a char the text
+    //lacks, mostly miss. Duplicates and empty patterns come up too.
+    private static List<String> patterns(Random random, String text, String alphabet, int count) {
+        List<String> patterns = new ArrayList<>();
+        for (int i = 0; i < count; ++i) {
+            if (!patterns.isEmpty() && random.nextInt(10) == 0) {
+                patterns.add(patterns.get(random.nextInt(patterns.size())));
+            } else if (random.nextBoolean() && !text.isEmpty()) {
+                int start = random.nextInt(text.length());
+                int end = start + random.nextInt(Math.min(15, text.length() - start) + 1);
+                patterns.add(text.substring(start, end) + randomString(random, random.nextInt(2), alphabet));
+            } else {
+                patterns.add(randomString(random, random.nextInt(6), alphabet + "#"));
+            }
+        }
+        return patterns;
+    }
+
+    private static String randomString(Random random, int length, String alphabet) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < length; ++i)
+            builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        return builder.toString();
+    }
+}
@@ -0,0 +1,67 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class CompactSuffixTreeTest {
+    //The large alphabet grows the child table past its first size; é and 中 do not fit a byte
+    private static final String[] ALPHABETS = {"a", "ab", "acgt", "abcdefghijklmnopqrstuvwxyz0123456789é中"};
+
+    @Test
+    void matchesBruteForceOnRandomText() {
+        Random random = new Random(1);
+        for (int trial = 0; trial < 2_000; ++trial) {
+            String alphabet = ALPHABETS[random.nextInt(ALPHABETS.length)];
+            String text = randomString(random, random.nextInt(40), alphabet) + (random.nextBoolean() ? "$" : "");
+            CompactSuffixTree tree = new CompactSuffixTree(text);
+            Set<String> substrings = new HashSet<>();
+            int longestRepeat = 0;
+            for (int i = 0; i <= text.length(); ++i)
+                for (int j = i; j <= text.length(); ++j) {
+                    String substring = text.substring(i, j);
+                    substrings.add(substring);
+                    if (text.indexOf(substring, i + 1) >= 0)
+                        longestRepeat = Math.max(longestRepeat, substring.length());
+                }
+            assertEquals(substrings.size(), tree.getNDistinctSubstrings(), text);
+            //Only a terminated text makes every repeat end at an internal node
+            if (text.endsWith("$"))
+                assertEquals(longestRepeat, tree.getInternalNodeDepth(), text);
+            for (int query = 0; query < 10; ++query) {
+                String pattern = randomString(random, random.nextInt(5), alphabet + "#");
+                assertEquals(text.contains(pattern), tree.contains(pattern), text + " " + pattern);
+            }
+        }
+    }
+
+    @Test
+    void answersLikeSuffixTree() {
+        for (String family : new String[]{"random2", "random256", "fibonacci", "run", "dna"}) {
+            String text = Benchmark.generate(family, 100_000) + "$";
+            SuffixTree expected = new SuffixTree(text);
+            CompactSuffixTree tree = new CompactSuffixTree(text);
+            assertEquals(expected.getNDistinctSubstrings(), tree.getNDistinctSubstrings(), family);
+            assertEquals(expected.getInternalNodeDepth(), tree.getInternalNodeDepth(), family);
+            //One leaf per suffix and at most one internal node per leaf, plus the root
+            assertTrue(tree.getNodeCount() <= 2 * text.length() + 1, family);
+            Random random = new Random(10);
+            for (int query = 0; query < 100; ++query) {
+                int start = random.nextInt(text.length());
+                String pattern = text.substring(start, Math.min(text.length(), start + 1 + random.nextInt(30)));
+                assertTrue(tree.contains(pattern), family + " " + pattern);
+                String missing = pattern + "\u0000";
+                assertEquals(expected.contains(missing), tree.contains(missing), family + " " + pattern);
+            }
+        }
+    }
+
+    private static String randomString(Random random, int length, String alphabet) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < length; ++i)
+            builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        return builder.toString();
+    }
+}
@@ -0,0 +1,86 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class FMIndexTest {
+    //Small alphabets make long repeats; the large one spans several wavelet matrix levels and non-Latin-1 chars
+    private static final String[] ALPHABETS = {"a", "ab", "acgt", "abcdefghijklmnopqrstuvwxyzé中￿"};
+
+    @Test
+    void matchesBruteForceOnRandomText() {
+        Random random = new Random(14);
+        for (int trial = 0; trial < 2_000; ++trial) {
+            String alphabet = ALPHABETS[random.nextInt(ALPHABETS.length)];
+            String text = randomString(random, random.nextInt(60), alphabet);
+            int sampleRate = 1 + random.nextInt(8);
+            FMIndex index = new FMIndex(text, sampleRate);
+            assertEquals(text.length(), index.length(), text);
+            assertEquals(distinctSubstrings(text), index.getNDistinctSubstrings(), text);
+            for (int query = 0; query < 10; ++query) {
+                //Sometimes a substring of the text, so long patterns are found too; the extra char is in no text
+                String pattern = random.nextBoolean() && text.length() > 0
+                        ? substring(random, text)
+                        : randomString(random, 1 + random.nextInt(4), alphabet + "z");
+                int[] expected = IntStream.rangeClosed(0, text.length() - pattern.length())
+                        .filter(i -> text.startsWith(pattern, i))
+                        .toArray();
+                String context = text + " " + pattern + " sampled every " + sampleRate;
+                assertArrayEquals(expected, index.findAll(pattern).sorted().toArray(), context);
+                assertEquals(expected.length, index.countOccurrences(pattern), context);
+                assertEquals(expected.length > 0, index.contains(pattern), context);
+            }
+            //The empty pattern occurs at every position, but not past the end
+            assertArrayEquals(IntStream.range(0, text.length()).toArray(), index.findAll("").sorted().toArray(), text);
+            assertEquals(text.length(), index.countOccurrences(""), text);
+            assertTrue(index.contains(""), text);
+        }
+    }
+
+    @Test
+    void answersLikeSuffixTree() {
+        String text = Benchmark.generate("random4", 20_000);
+        FMIndex index = new FMIndex(text);
+        SuffixTree tree = new SuffixTree(text);
+        assertEquals(tree.getNDistinctSubstrings(), index.getNDistinctSubstrings());
+        Random random = new Random(140);
+        for (int query = 0; query < 200; ++query) {
+            String pattern = substring(random, text);
+            assertEquals(tree.countOccurrences(pattern), index.countOccurrences(pattern), pattern);
+            assertArrayEquals(tree.findAll(pattern).sorted().toArray(), index.findAll(pattern).sorted().toArray(),
+                    pattern);
+        }
+        assertTrue(index.sizeInBytes() < text.length(), "Expected a few bits per char, got " + index.sizeInBytes());
+    }
+
+    @Test
+    void rejectsNonPositiveSampleRate() {
+        assertThrows(IllegalArgumentException.class, () -> new FMIndex("abc", 0));
+    }
+
+    private static String substring(Random random, String text) {
+        int start = random.nextInt(text.length());
+        return text.substring(start, start + 1 + random.nextInt(Math.min(12, text.length() - start)));
+    }
+
+    private static long distinctSubstrings(String text) {
+        Set<String> substrings = new HashSet<>();
+        for (int i = 0; i <= text.length(); ++i)
+            for (int j = i; j <= text.length(); ++j)
+                substrings.add(text.substring(i, j));
+        return substrings.size();
+    }
+
+    private static String randomString(Random random, int length, String alphabet) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < length; ++i)
+            builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        return builder.toString();
+    }
+}
@@ -0,0 +1,113 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import org.junit.jupiter.api.Test;
+
+class GeneralizedSuffixTreeTest {
+    @Test
+    void patternsDoNotMatchAcrossDocuments() {
+        GeneralizedSuffixTree tree = new GeneralizedSuffixTree();
+        tree.addDocument("ab");
+        tree.addDocument("cd");
+        assertFalse(tree.contains("bc"));
+        assertFalse(tree.contains("abc"));
+        assertEquals(0, tree.countDocuments("bc"));
+    }
+
+    //The terminator of "ab" ends its suffixes at internal nodes of "xab"'s paths, so their leaves are terminals
+    @Test
+    void documentsEndingInsideOtherDocumentsAreFound() {
+        GeneralizedSuffixTree tree = new GeneralizedSuffixTree();
+        tree.addDocument("xab");
+        tree.addDocument("ab");
+        tree.addDocument("b");
+        assertEquals(Set.of("0:1", "1:0"), occurrences(tree, "ab"));
+        assertEquals(Set.of("0:2", "1:1", "2:0"), occurrences(tree, "b"));
+        assertArrayEquals(new int[]{0, 1, 2}, tree.documentsContaining("b").toArray());
+    }
+
+    @Test
+    void identicalAndEmptyDocuments() {
+        GeneralizedSuffixTree tree = new GeneralizedSuffixTree();
+        assertEquals(0, tree.addDocument("aa"));
+        assertEquals(1, tree.addDocument(""));
+        assertEquals(2, tree.addDocument("aa"));
+        assertEquals(Set.of("0:0", "0:1", "2:0", "2:1"), occurrences(tree, "a"));
+        assertEquals(2, tree.countDocuments("aa"));
+        assertEquals("aa", tree.longestCommonSubstring(2));
+        assertEquals("", tree.longestCommonSubstring(3));
+    }
+
+    @Test
+    void matchesBruteForceOnRandomDocuments() {
+        Random random = new Random(7);
+        for (int iteration = 0; iteration < 2_000; ++iteration) {
+            int documentCount = 1 + random.nextInt(5);
+            int alphabetSize = 1 + random.nextInt(3);
+            List<String> documents = new ArrayList<>();
+            GeneralizedSuffixTree tree = new GeneralizedSuffixTree();
+            for (int d = 0; d < documentCount; ++d) {
+                String document = randomString(random, random.nextInt(12), alphabetSize);
+                documents.add(document);
+                assertEquals(d, tree.addDocument(document));
+            }
+
+            for (int query = 0; query < 20; ++query) {
+                String pattern = randomString(random, 1 + random.nextInt(4), alphabetSize);
+                Set<String> expected = new TreeSet<>();
+                BitSet expectedDocuments = new BitSet();
+                for (int d = 0; d < documentCount; ++d)
+                    for (int i = documents.get(d).indexOf(pattern); i >= 0; i = documents.get(d).indexOf(pattern, i + 1)) {
+                        expected.add(d + ":" + i);
+                        expectedDocuments.set(d);
+                    }
+                String context = documents + " " + pattern;
+                assertEquals(expected, occurrences(tree, pattern), context);
+                assertEquals(expectedDocuments.cardinality(), tree.countDocuments(pattern), context);
+                assertArrayEquals(expectedDocuments.stream().toArray(), tree.documentsContaining(pattern).toArray(), context);
+                assertEquals(!expected.isEmpty(), tree.contains(pattern), context);
+            }
+
+            for (int k = 1; k <= documentCount; ++k) {
+                String common = tree.longestCommonSubstring(k);
+                String context = documents + " k=" + k;
+                assertEquals(longestCommonSubstring(documents, k), common.length(), context);
+                assertTrue(common.isEmpty() || documents.stream().filter(d -> d.contains(common)).count() >= k, context);
+            }
+        }
+    }
+
+    private static Set<String> occurrences(GeneralizedSuffixTree tree, String pattern) {
+        Set<String> occurrences = new TreeSet<>();
+        tree.findAll(pattern, (documentId, offset) -> occurrences.add(documentId + ":" + offset));
+        return occurrences;
+    }
+
+    //Length of the longest substring of at least k documents
+    private static int longestCommonSubstring(List<String> documents, int k) {
+        int best = 0;
+        for (String document : documents)
+            for (int i = 0; i < document.length(); ++i)
+                for (int j = i + 1; j <= document.length(); ++j) {
+                    String substring = document.substring(i, j);
+                    if (documents.stream().filter(d -> d.contains(substring)).count() >= k)
+                        best = Math.max(best, substring.length());
+                }
+        return best;
+    }
+
+    private static String randomString(Random random, int length, int alphabetSize) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < length; ++i)
+            builder.append((char) ('a' + random.nextInt(alphabetSize)));
+        return builder.toString();
+    }
+}
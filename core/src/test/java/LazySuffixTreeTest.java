@@ -0,0 +1,76 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeout;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class LazySuffixTreeTest {
+    @Test
+    void matchesBruteForceOnRandomText() {
+        Random random = new Random(20);
+        for (int trial = 0; trial < 2_000; ++trial) {
+            int alphabetSize = 1 + random.nextInt(4);
+            String text = randomString(random, random.nextInt(40), alphabetSize);
+            //Budgets from nothing, which evicts on every expansion, to everything
+            LazySuffixTree tree = new LazySuffixTree(text, random.nextBoolean() ? 0 : 1 << 20);
+            for (int query = 0; query < 10; ++query) {
+                String pattern = randomString(random, 1 + random.nextInt(4), alphabetSize + 1);
+                int[] expected = IntStream.rangeClosed(0, text.length() - pattern.length())
+                        .filter(i -> text.startsWith(pattern, i))
+                        .toArray();
+                String context = text + " " + pattern;
+                assertArrayEquals(expected, tree.findAll(pattern).sorted().toArray(), context);
+                assertEquals(expected.length, tree.countOccurrences(pattern), context);
+                assertEquals(expected.length > 0, tree.contains(pattern), context);
+            }
+            assertEquals(distinctSubstrings(text), tree.getNDistinctSubstrings(), text);
+        }
+    }
+
+    @Test
+    void evictsSubtreesOverBudget() {
+        LazySuffixTree tree = new LazySuffixTree(Benchmark.generate("random4", 10_000), 1);
+        for (String pattern : new String[]{"a", "b", "c", "d", "a"})
+            assertTrue(tree.contains(pattern));
+        assertEquals(1, tree.getCachedSubtrees());
+        assertEquals(5, tree.getExpansions());
+    }
+
+    //Top-down construction is quadratic on these, so each subtree has to come from Ukkonen's Algorithm instead
+    @Test
+    void repetitiveTextFallsBackToSequentialBuild() {
+        for (String family : new String[]{"run", "fibonacci"}) {
+            String text = Benchmark.generate(family, 200_000);
+            SuffixTree expected = new SuffixTree(text);
+            LazySuffixTree tree = assertTimeout(Duration.ofSeconds(10), () -> {
+                LazySuffixTree lazy = new LazySuffixTree(text, Long.MAX_VALUE);
+                lazy.getNDistinctSubstrings();
+                return lazy;
+            }, family);
+            assertEquals(expected.getNDistinctSubstrings(), tree.getNDistinctSubstrings(), family);
+            String pattern = text.substring(1_000, 1_020);
+            assertArrayEquals(expected.findAll(pattern).sorted().toArray(), tree.findAll(pattern).sorted().toArray(), family);
+        }
+    }
+
+    private static long distinctSubstrings(String text) {
+        Set<String> substrings = new HashSet<>();
+        for (int i = 0; i <= text.length(); ++i)
+            for (int j = i; j <= text.length(); ++j)
+                substrings.add(text.substring(i, j));
+        return substrings.size();
+    }
+
+    private static String randomString(Random random, int length, int alphabetSize) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < length; ++i)
+            builder.append((char) ('a' + random.nextInt(alphabetSize)));
+        return builder.toString();
+    }
+}
@@ -0,0 +1,72 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class LzFactorizationTest {
+    @Test
+    void factorsMayOverlapTheirSource() {
+        assertArrayEquals(new int[][]{{0, 1, -1}, {1, 5, 0}}, factors(new SuffixTree("aaaaaa")));
+        assertArrayEquals(new int[][]{{0, 1, -1}, {1, 1, -1}, {2, 4, 0}, {6, 1, -1}},
+                factors(new SuffixTree("ababab$")));
+    }
+
+    @Test
+    void emptyTextHasNoFactors() {
+        assertEquals(0, new SuffixTree("").getFactorCount());
+    }
+
+    //Built in one go and appended char by char, the latter leaving implicit suffixes behind
+    @Test
+    void matchesBruteForceOnRandomText() {
+        Random random = new Random(22);
+        for (int trial = 0; trial < 20_000; ++trial) {
+            int alphabetSize = 1 + random.nextInt(4);
+            StringBuilder builder = new StringBuilder();
+            for (int i = random.nextInt(60); i > 0; --i)
+                builder.append((char) ('a' + random.nextInt(alphabetSize)));
+            String text = builder.toString();
+            SuffixTree tree;
+            if (trial % 2 == 0) {
+                tree = new SuffixTree(text);
+            } else {
+                tree = new SuffixTree();
+                tree.append(text);
+            }
+            int[][] expected = bruteForceFactors(text);
+            assertArrayEquals(expected, factors(tree), text);
+            assertEquals(expected.length, tree.getFactorCount(), text);
+        }
+    }
+
+    private static int[][] factors(SuffixTree tree) {
+        List<int[]> factors = new ArrayList<>();
+        tree.forEachFactor((position, length, source) -> factors.add(new int[]{position, length, source}));
+        return factors.toArray(new int[0][]);
+    }
+
+    //Longest previous factor at each position, taking the earliest source among the longest
+    private static int[][] bruteForceFactors(String text) {
+        List<int[]> factors = new ArrayList<>();
+        int position = 0;
+        while (position < text.length()) {
+            int best = 0;
+            int source = -1;
+            for (int from = 0; from < position; ++from) {
+                int length = 0;
+                while (position + length < text.length() && text.charAt(from + length) == text.charAt(position + length))
+                    ++length;
+                if (length > best) {
+                    best = length;
+                    source = from;
+                }
+            }
+            factors.add(new int[]{position, Math.max(best, 1), source});
+            position += Math.max(best, 1);
+        }
+        return factors.toArray(new int[0][]);
+    }
+}
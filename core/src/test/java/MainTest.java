@@ -0,0 +1,49 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class MainTest {
+    //"$" is the usual terminator, so records containing it must not be counted as if it were unique
+    @Test
+    void metricsHandleRecordsContainingTheTerminator() {
+        for (boolean compact : new boolean[]{false, true}) {
+            assertEquals("6", Main.Metric.DISTINCT.apply("a$a", compact));
+            assertEquals("1", Main.Metric.DEPTH.apply("x$x", compact));
+            assertEquals("x", Main.Metric.REPEAT.apply("x$x", compact));
+        }
+    }
+
+    @Test
+    void metricsMatchBruteForceOnRandomRecords() {
+        Random random = new Random(25);
+        String alphabet = "ab$%";
+        for (int trial = 0; trial < 2_000; ++trial) {
+            StringBuilder builder = new StringBuilder();
+            for (int i = random.nextInt(20); i > 0; --i)
+                builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            String record = builder.toString();
+
+            Set<String> substrings = new HashSet<>();
+            int longestRepeat = 0;
+            for (int i = 0; i <= record.length(); ++i)
+                for (int j = i; j <= record.length(); ++j) {
+                    String substring = record.substring(i, j);
+                    substrings.add(substring);
+                    if (record.indexOf(substring, i + 1) >= 0)
+                        longestRepeat = Math.max(longestRepeat, substring.length());
+                }
+            //Metrics must not depend on which tree they are computed with
+            for (boolean compact : new boolean[]{false, true}) {
+                assertEquals(Integer.toString(substrings.size()), Main.Metric.DISTINCT.apply(record, compact), record);
+                assertEquals(Integer.toString(longestRepeat), Main.Metric.DEPTH.apply(record, compact), record);
+                String repeat = Main.Metric.REPEAT.apply(record, compact);
+                assertEquals(longestRepeat, repeat.length(), record);
+                assertTrue(repeat.isEmpty() || record.indexOf(repeat) != record.lastIndexOf(repeat), record);
+            }
+        }
+    }
+}
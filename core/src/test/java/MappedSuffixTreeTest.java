@@ -0,0 +1,106 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MappedSuffixTreeTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void roundTripsSmallTexts() throws IOException {
+        Random random = new Random(5);
+        //Latin-1 alphabets are stored a byte per char, the others as UTF-16
+        String[] alphabets = {"ab", "acgt", "aéÿ", "a中", "ab￿"};
+        for (int trial = 0; trial < 200; ++trial) {
+            String alphabet = alphabets[random.nextInt(alphabets.length)];
+            String text = randomString(random, random.nextInt(50), alphabet) + (random.nextBoolean() ? "$" : "");
+            MappedSuffixTree mapped = assertRoundTrip(text);
+            for (int query = 0; query < 10; ++query) {
+                String pattern = randomString(random, random.nextInt(5), alphabet + "#");
+                assertEquals(text.contains(pattern), mapped.contains(pattern), text + " " + pattern);
+            }
+        }
+    }
+
+    //Far more than the 1 MB write buffer, in both text encodings
+    @Test
+    void roundTripsTextsLargerThanTheWriteBuffer() throws IOException {
+        Random random = new Random(50);
+        for (String suffix : new String[]{"$", "中"}) {
+            String text = Benchmark.generate("dna", 300_000) + suffix;
+            MappedSuffixTree mapped = assertRoundTrip(text);
+            assertTrue(Files.size(directory.resolve("tree")) > 1 << 22, suffix);
+            for (int query = 0; query < 200; ++query) {
+                int start = random.nextInt(text.length());
+                String pattern = text.substring(start, Math.min(text.length(), start + 1 + random.nextInt(40)));
+                assertTrue(mapped.contains(pattern), pattern);
+                assertEquals(text.contains(pattern + "x"), mapped.contains(pattern + "x"), pattern);
+            }
+        }
+    }
+
+    @Test
+    void rejectsOtherFiles() throws IOException {
+        Path path = directory.resolve("tree");
+        Files.write(path, new byte[10]);
+        assertThrows(IOException.class, () -> new MappedSuffixTree(path));
+
+        new CompactSuffixTree("banana$").save(path);
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[0] ^= 1;
+        Files.write(path, bytes);
+        assertThrows(IOException.class, () -> new MappedSuffixTree(path));
+
+        bytes[0] ^= 1;
+        bytes[4] = 2;
+        Files.write(path, bytes);
+        assertThrows(IOException.class, () -> new MappedSuffixTree(path));
+    }
+
+    //Saves text, checks the version 1 header and layout byte for byte, and reopens it
+    private MappedSuffixTree assertRoundTrip(String text) throws IOException {
+        CompactSuffixTree tree = new CompactSuffixTree(text);
+        Path path = directory.resolve("tree");
+        tree.save(path);
+        boolean byteText = text.chars().allMatch(c -> c <= 0xFF);
+
+        ByteBuffer file = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(MappedSuffixTree.MAGIC, file.getInt(0), text);
+        assertEquals(1, file.getInt(4), text);
+        assertEquals(byteText ? MappedSuffixTree.BYTE_TEXT : 0, file.getInt(8), text);
+        assertEquals(text.length(), file.getInt(12), text);
+        assertEquals(tree.getNodeCount(), file.getInt(16), text);
+        int hashBits = file.getInt(20);
+        assertEquals(tree.getNDistinctSubstrings(), file.getLong(24), text);
+        assertEquals(tree.getInternalNodeDepth(), file.getInt(32), text);
+        assertEquals(0, file.getInt(36), text);
+        long textOffset = 40 + (1L << hashBits) * 12 + tree.getNodeCount() * 16L;
+        assertEquals(textOffset + (long) text.length() * (byteText ? 1 : 2), file.capacity(), text);
+
+        MappedSuffixTree mapped = new MappedSuffixTree(path);
+        assertEquals(text.length(), mapped.length(), text);
+        assertEquals(tree.getNodeCount(), mapped.getNodeCount(), text);
+        assertEquals(tree.getNDistinctSubstrings(), mapped.getNDistinctSubstrings(), text);
+        assertEquals(tree.getInternalNodeDepth(), mapped.getInternalNodeDepth(), text);
+        assertEquals(CompactSuffixTree.ROOT, mapped.getSuffixLink(CompactSuffixTree.ROOT), text);
+        for (int i = 0; i < text.length(); ++i)
+            assertEquals(text.charAt(i), mapped.charAt(i), text);
+        return mapped;
+    }
+
+    private static String randomString(Random random, int length, String alphabet) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < length; ++i)
+            builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        return builder.toString();
+    }
+}
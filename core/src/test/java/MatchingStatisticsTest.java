@@ -0,0 +1,127 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class MatchingStatisticsTest {
+    @Test
+    void matchesBruteForceOnRandomText() throws IOException {
+        Random random = new Random(19);
+        for (int trial = 0; trial < 1_000; ++trial) {
+            int alphabetSize = 1 + random.nextInt(4);
+            String reference = randomString(random, random.nextInt(40), alphabetSize);
+            //One char more than the reference uses, so some positions match nothing
+            String query = randomString(random, random.nextInt(40), alphabetSize + 1);
+            Records records = scanAll(tree(random, reference), query);
+            for (int position = 0; position < query.length(); ++position) {
+                int longest = 0;
+                while (position + longest < query.length()
+                        && reference.contains(query.substring(position, position + longest + 1)))
+                    ++longest;
+                String context = reference + " " + query + " at " + position;
+                assertEquals(position, records.positions.get(position), context);
+                assertEquals(longest, records.lengths.get(position), context);
+                assertOffset(reference, query, records, position, context);
+            }
+        }
+    }
+
+    //Long enough to cross the stream buffers, on text where matches are long and suffix links are followed often
+    @Test
+    void longStreamsMatchTheTree() throws IOException {
+        Random random = new Random(190);
+        for (String family : new String[]{"random4", "run", "fibonacci"}) {
+            String reference = Benchmark.generate(family, 5_000);
+            SuffixTree tree = tree(random, reference);
+            StringBuilder query = new StringBuilder();
+            while (query.length() < 30_000) {
+                int start = random.nextInt(reference.length());
+                query.append(reference, start, Math.min(reference.length(), start + random.nextInt(200)));
+                query.append('é');
+            }
+            Records records = scanAll(tree, query.toString());
+            for (int position = 0; position < query.length(); ++position) {
+                int length = records.lengths.get(position);
+                String context = family + " at " + position;
+                assertOffset(reference, query.toString(), records, position, context);
+                if (position + length < query.length())
+                    assertFalse(tree.contains(query.subSequence(position, position + length + 1)), context);
+            }
+        }
+    }
+
+    private static void assertOffset(String reference, String query, Records records, int position, String context) {
+        int length = records.lengths.get(position);
+        int offset = records.offsets.get(position);
+        if (length == 0)
+            assertEquals(-1, offset, context);
+        else
+            assertTrue(reference.startsWith(query.substring(position, position + length), offset), context);
+    }
+
+    //Ukkonen's Algorithm, with or without appending, or buildParallel, whose nodes have no suffix links
+    private static SuffixTree tree(Random random, String reference) {
+        switch (random.nextInt(3)) {
+            case 0:
+                return new SuffixTree(reference);
+            case 1:
+                SuffixTree tree = new SuffixTree();
+                tree.append(reference);
+                return tree;
+            default:
+                return SuffixTree.buildParallel(reference);
+        }
+    }
+
+    //Scans query (Latin-1 only) from each kind of input, checks they agree and returns the records
+    private static Records scanAll(SuffixTree tree, String query) throws IOException {
+        MatchingStatistics statistics = new MatchingStatistics(tree);
+        byte[] bytes = query.getBytes(StandardCharsets.ISO_8859_1);
+        Records fromChars = new Records();
+        statistics.scan(query, fromChars);
+        Records fromReader = new Records();
+        statistics.scan(new StringReader(query), fromReader);
+        Records fromStream = new Records();
+        statistics.scan(new ByteArrayInputStream(bytes), fromStream);
+        Records fromBuffer = new Records();
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        statistics.scan(buffer, fromBuffer);
+        assertEquals(0, buffer.remaining());
+        assertEquals(query.length(), fromChars.positions.size(), query);
+        for (Records records : new Records[]{fromReader, fromStream, fromBuffer}) {
+            assertEquals(fromChars.positions, records.positions, query);
+            assertEquals(fromChars.lengths, records.lengths, query);
+            assertEquals(fromChars.offsets, records.offsets, query);
+        }
+        return fromChars;
+    }
+
+    private static class Records implements MatchingStatistics.MatchConsumer {
+        private final List<Long> positions = new ArrayList<>();
+        private final List<Integer> lengths = new ArrayList<>();
+        private final List<Integer> offsets = new ArrayList<>();
+
+        @Override
+        public void accept(long position, int matchLength, int referenceOffset) {
+            positions.add(position);
+            lengths.add(matchLength);
+            offsets.add(referenceOffset);
+        }
+    }
+
+    private static String randomString(Random random, int length, int alphabetSize) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < length; ++i)
+            builder.append((char) ('a' + random.nextInt(alphabetSize)));
+        return builder.toString();
+    }
+}
@@ -0,0 +1,65 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeout;
+
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+class ParallelBuildTest {
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    @AfterAll
+    static void shutDown() {
+        POOL.shutdown();
+    }
+
+    @Test
+    void matchesSequentialBuildOnRandomText() {
+        Random random = new Random(9);
+        for (int iteration = 0; iteration < 5_000; ++iteration) {
+            StringBuilder builder = new StringBuilder();
+            int alphabetSize = 1 + random.nextInt(4);
+            for (int i = random.nextInt(40); i > 0; --i)
+                builder.append((char) ('a' + random.nextInt(alphabetSize)));
+            if (random.nextBoolean())
+                builder.append('$');
+            String text = builder.toString();
+            assertSameTree(new SuffixTree(text), SuffixTree.buildParallel(text, POOL), text, random);
+        }
+    }
+
+    @Test
+    void parallelTreesCannotBeAppendedTo() {
+        SuffixTree tree = SuffixTree.buildParallel(Benchmark.generate("random26", 10_000), POOL);
+        assertThrows(IllegalStateException.class, () -> tree.append('a'));
+    }
+
+    //Top-down construction is quadratic on these, so buildParallel has to give up and use Ukkonen's Algorithm,
+    //whose trees can be appended to
+    @Test
+    void repetitiveTextFallsBackToSequentialBuild() {
+        for (String family : new String[]{"run", "fibonacci"}) {
+            String text = Benchmark.generate(family, 100_000);
+            SuffixTree tree = assertTimeout(Duration.ofSeconds(10), () -> SuffixTree.buildParallel(text, POOL), family);
+            assertSameTree(new SuffixTree(text), tree, family, new Random(family.hashCode()));
+            tree.append('c');
+            assertEquals(text.length() + 1, tree.length());
+        }
+    }
+
+    private static void assertSameTree(SuffixTree expected, SuffixTree actual, String text, Random random) {
+        assertEquals(expected.getNDistinctSubstrings(), actual.getNDistinctSubstrings(), text);
+        assertEquals(expected.getInternalNodeDepth(), actual.getInternalNodeDepth(), text);
+        for (int query = 0; query < 10 && !text.isEmpty(); ++query) {
+            int from = random.nextInt(text.length());
+            String pattern = text.substring(from, from + random.nextInt(Math.min(text.length() - from, 50) + 1));
+            assertEquals(expected.countOccurrences(pattern), actual.countOccurrences(pattern), text + " " + pattern);
+            assertArrayEquals(expected.findAll(pattern).sorted().toArray(), actual.findAll(pattern).sorted().toArray(),
+                    text + " " + pattern);
+        }
+    }
+}
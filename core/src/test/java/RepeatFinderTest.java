@@ -0,0 +1,122 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class RepeatFinderTest {
+    @Test
+    void matchesBruteForceOnRandomText() {
+        Random random = new Random(15);
+        for (int trial = 0; trial < 1_000; ++trial) {
+            int alphabetSize = 1 + random.nextInt(4);
+            //With and without a terminator, which no repeat can contain
+            String text = randomString(random, random.nextInt(30), alphabetSize) + (random.nextBoolean() ? "$" : "");
+            RepeatFinder finder = new RepeatFinder(new SuffixTree(text));
+            Map<String, int[]> occurrences = occurrences(text);
+            List<String> repeats = new ArrayList<>();
+            List<String> maximal = new ArrayList<>();
+            List<String> supermaximal = new ArrayList<>();
+            for (String s : occurrences.keySet()) {
+                if (occurrences.get(s).length < 2)
+                    continue;
+                Set<Character> right = new HashSet<>();
+                Set<Character> left = new HashSet<>();
+                boolean extendable = false;
+                for (int position : occurrences.get(s)) {
+                    //The ends of the text are unlike any char
+                    right.add(position + s.length() < text.length() ? text.charAt(position + s.length()) : null);
+                    left.add(position > 0 ? text.charAt(position - 1) : null);
+                    extendable |= position > 0 && occurrences.get(text.substring(position - 1, position + s.length())).length > 1;
+                    extendable |= position + s.length() < text.length()
+                            && occurrences.get(text.substring(position, position + s.length() + 1)).length > 1;
+                }
+                boolean rightMaximal = right.size() > 1 || right.contains(null);
+                boolean leftMaximal = left.size() > 1 || left.contains(null);
+                if (rightMaximal)
+                    repeats.add(s);
+                if (rightMaximal && leftMaximal)
+                    maximal.add(s);
+                if (!extendable)
+                    supermaximal.add(s);
+            }
+            for (int k : new int[]{0, 1, 1 + random.nextInt(5), Integer.MAX_VALUE}) {
+                assertTopK(repeats, occurrences, finder.longestRepeats(k), k, text);
+                assertTopK(maximal, occurrences, finder.maximalRepeats(k), k, text);
+                assertTopK(supermaximal, occurrences, finder.supermaximalRepeats(k), k, text);
+            }
+        }
+    }
+
+    @Test
+    void longestCommonSubstringMatchesBruteForce() {
+        Random random = new Random(150);
+        for (int trial = 0; trial < 1_000; ++trial) {
+            int alphabetSize = 1 + random.nextInt(4);
+            String a = randomString(random, random.nextInt(25), alphabetSize);
+            String b = randomString(random, random.nextInt(25), alphabetSize);
+            int longest = 0;
+            for (int i = 0; i < a.length(); ++i)
+                for (int j = i + 1; j <= a.length(); ++j)
+                    if (b.contains(a.substring(i, j)))
+                        longest = Math.max(longest, j - i);
+            Repeat common = RepeatFinder.longestCommonSubstring(a, b);
+            String context = a + " " + b;
+            if (longest == 0) {
+                assertNull(common, context);
+                continue;
+            }
+            assertEquals(longest, common.getLength(), context);
+            String substring = common.getSubstring().toString();
+            assertArrayEquals(new int[]{a.indexOf(substring), b.indexOf(substring)}, common.getPositions(), context);
+        }
+    }
+
+    @Test
+    void rejectsNegativeK() {
+        assertThrows(IllegalArgumentException.class, () -> new RepeatFinder(new SuffixTree("abab")).longestRepeats(-1));
+    }
+
+    //found must be min(k, expected.size()) distinct strings of expected, longest first, with every occurrence; any
+    //of the strings tied at the cutoff length may be reported
+    private static void assertTopK(List<String> expected, Map<String, int[]> occurrences, List<Repeat> found, int k,
+                                   String text) {
+        String context = text + " top " + k + " of " + expected + ", found " + found;
+        int[] expectedLengths = expected.stream().mapToInt(s -> -s.length()).sorted().limit(k).map(l -> -l).toArray();
+        assertArrayEquals(expectedLengths, found.stream().mapToInt(Repeat::getLength).toArray(), context);
+        Set<String> seen = new HashSet<>();
+        for (Repeat repeat : found) {
+            String s = repeat.getSubstring().toString();
+            assertTrue(expected.contains(s) && seen.add(s), context);
+            assertArrayEquals(occurrences.get(s), repeat.getPositions(), context);
+        }
+    }
+
+    //Every non-empty substring with its start positions in increasing order
+    private static Map<String, int[]> occurrences(String text) {
+        Map<String, int[]> occurrences = new HashMap<>();
+        for (int i = 0; i < text.length(); ++i)
+            for (int j = i + 1; j <= text.length(); ++j)
+                occurrences.computeIfAbsent(text.substring(i, j), s -> IntStream.rangeClosed(0, text.length() - s.length())
+                        .filter(p -> text.startsWith(s, p))
+                        .toArray());
+        return occurrences;
+    }
+
+    private static String randomString(Random random, int length, int alphabetSize) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < length; ++i)
+            builder.append((char) ('a' + random.nextInt(alphabetSize)));
+        return builder.toString();
+    }
+}
@@ -0,0 +1,130 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.Test;
+
+class SlidingWindowSuffixTreeTest {
+    @Test
+    void rejectsEmptyWindows() {
+        assertThrows(IllegalArgumentException.class, () -> new SlidingWindowSuffixTree(0));
+    }
+
+    @Test
+    void windowOfOneHoldsTheLastChar() {
+        SlidingWindowSuffixTree tree = new SlidingWindowSuffixTree(1);
+        tree.append("abab");
+        assertEquals(3, tree.getStart());
+        assertTrue(tree.contains("b"));
+        assertEquals(0, tree.countOccurrences("a"));
+        assertArrayEquals(new long[]{3}, tree.findAll("b").toArray());
+    }
+
+    //In a run the deleted suffix is still implicit, and its only occurrence can be the active point's edge
+    @Test
+    void deletesImplicitSuffixesOfRuns() {
+        SlidingWindowSuffixTree tree = new SlidingWindowSuffixTree(3);
+        tree.append("aaaaaa");
+        assertArrayEquals(new long[]{3, 4, 5}, tree.findAll("a").sorted().toArray());
+        assertEquals(0, tree.countOccurrences("aaaa"));
+        tree.append('b');
+        assertArrayEquals(new long[]{4, 5}, tree.findAll("a").sorted().toArray());
+        assertArrayEquals(new long[]{5}, tree.findAll("ab").toArray());
+    }
+
+    //Deleting a suffix invalidates the labels of the ancestors whose pos is its start
+    @Test
+    void refreshesAncestorLabelsAfterDeletion() {
+        SlidingWindowSuffixTree tree = new SlidingWindowSuffixTree(6);
+        tree.append("abcabcxyzxyz");
+        assertEquals(0, tree.countOccurrences("abc"));
+        assertArrayEquals(new long[]{6, 9}, tree.findAll("xyz").sorted().toArray());
+        assertArrayEquals(new long[]{7, 10}, tree.findAll("yz").sorted().toArray());
+        tree.append('x');
+        assertArrayEquals(new long[]{9}, tree.findAll("xyzx").toArray());
+    }
+
+    //Runs of a make a chain of internal nodes as deep as the run is long, and each deletion used to walk all of it
+    @Test
+    void labelRefreshesStayAmortizedConstantOnDeepChains() {
+        SlidingWindowSuffixTree tree = new SlidingWindowSuffixTree(20_000);
+        StringBuilder stream = new StringBuilder();
+        while (stream.length() < 200_000)
+            stream.append("a".repeat(4_000)).append('x');
+        tree.append(stream);
+        assertTrue(tree.getRefreshSteps() <= 3L * stream.length(), "refresh steps " + tree.getRefreshSteps());
+
+        String window = stream.substring(stream.length() - 20_000);
+        for (String pattern : new String[]{"x", "ax", "xa", "a".repeat(3_999) + "x", "xaaaa"})
+            assertArrayEquals(expected(window, stream.length() - 20_000, pattern), tree.findAll(pattern).sorted().toArray(),
+                    pattern.length() > 10 ? "long pattern" : pattern);
+    }
+
+    @Test
+    void nodeCountStaysBoundedOnLongStreams() {
+        int windowSize = 64;
+        SlidingWindowSuffixTree tree = new SlidingWindowSuffixTree(windowSize);
+        Random random = new Random(1);
+        StringBuilder stream = new StringBuilder();
+        for (int i = 0; i < 100_000; ++i) {
+            char c = i % 1_000 < 500 ? 'a' : (char) ('a' + random.nextInt(3));
+            tree.append(c);
+            stream.append(c);
+            assertTrue(tree.getNodeCount() <= 2 * (windowSize + 1) + 1);
+        }
+        String window = stream.substring(stream.length() - windowSize);
+        assertEquals(expected(window, stream.length() - windowSize, "ab").length,
+                tree.countOccurrences("ab"));
+    }
+
+    @Test
+    void matchesBruteForceOnRandomStreams() {
+        Random random = new Random(21);
+        for (int trial = 0; trial < 3_000; ++trial) {
+            int windowSize = 1 + random.nextInt(trial % 3 == 0 ? 40 : 8);
+            int alphabetSize = 1 + random.nextInt(trial % 2 == 0 ? 2 : 5);
+            SlidingWindowSuffixTree tree = new SlidingWindowSuffixTree(windowSize);
+            StringBuilder stream = new StringBuilder();
+            for (int i = random.nextInt(300); i > 0; --i) {
+                char c = trial % 5 == 0 && i % 7 < 4 ? 'a' : (char) ('a' + random.nextInt(alphabetSize));
+                tree.append(c);
+                stream.append(c);
+                int start = Math.max(0, stream.length() - windowSize);
+                String window = stream.substring(start);
+                assertEquals(window.length(), tree.length());
+                assertEquals(start, tree.getStart());
+                assertEquals(stream.length(), tree.getEnd());
+                assertTrue(tree.getNodeCount() <= 2 * (windowSize + 1) + 1);
+
+                for (int query = 0; query < 4; ++query) {
+                    String pattern;
+                    if (query < 2) {
+                        int from = random.nextInt(window.length());
+                        pattern = window.substring(from, from + 1 + random.nextInt(window.length() - from));
+                    } else {
+                        StringBuilder builder = new StringBuilder();
+                        for (int k = 1 + random.nextInt(4); k > 0; --k)
+                            builder.append((char) ('a' + random.nextInt(alphabetSize)));
+                        pattern = builder.toString();
+                    }
+                    long[] expected = expected(window, start, pattern);
+                    String context = "window " + windowSize + " over " + stream + ", pattern " + pattern;
+                    assertArrayEquals(expected, tree.findAll(pattern).sorted().toArray(), context);
+                    assertEquals(expected.length, tree.countOccurrences(pattern), context);
+                    assertEquals(expected.length > 0, tree.contains(pattern), context);
+                }
+            }
+        }
+    }
+
+    //Stream offsets of the occurrences of pattern in window, which starts at offset start
+    private static long[] expected(String window, long start, String pattern) {
+        return LongStream.range(0, window.length() - pattern.length() + 1)
+                .filter(i -> window.startsWith(pattern, (int) i))
+                .map(i -> start + i)
+                .toArray();
+    }
+}
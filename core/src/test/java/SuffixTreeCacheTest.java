@@ -0,0 +1,114 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.junit.jupiter.api.Test;
+
+class SuffixTreeCacheTest {
+    @Test
+    void concurrentRequestsShareOneBuild() throws Exception {
+        AtomicInteger builds = new AtomicInteger();
+        SuffixTreeCache cache = new SuffixTreeCache(50_000_000, text -> {
+            builds.incrementAndGet();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new SuffixTree(text);
+        });
+        String text = Benchmark.generate("random4", 100_000);
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<SuffixTree>> trees = new ArrayList<>();
+            //Equal texts in distinct instances
+            for (int i = 0; i < 32; ++i)
+                trees.add(executor.submit(() -> cache.get(new String(text))));
+            for (Future<SuffixTree> tree : trees)
+                assertSame(trees.get(0).get(), tree.get());
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(1, builds.get());
+        assertEquals(1, cache.getMisses());
+        assertEquals(31, cache.getHits() + cache.getLoadWaits());
+        assertEquals(1, cache.getCachedTrees());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedTreesOverBudget() {
+        String[] texts = new String[6];
+        for (int i = 0; i < texts.length; ++i)
+            texts[i] = Benchmark.generate("random26", 10_000 + i);
+
+        SuffixTreeCache cache = new SuffixTreeCache(3_000_000);
+        for (String text : texts)
+            assertEquals(text, cache.get(text).getSource().toString());
+        assertEquals(texts.length, cache.getCachedTrees() + cache.getEvictions());
+        assertTrue(cache.getCachedBytes() <= cache.getBudgetBytes());
+        long hits = cache.getHits();
+        cache.get(texts[texts.length - 1]);
+        assertEquals(hits + 1, cache.getHits());
+
+        //A tree larger than the budget stays until the next one is added
+        SuffixTreeCache tiny = new SuffixTreeCache(1);
+        for (String text : texts)
+            tiny.get(text);
+        assertEquals(1, tiny.getCachedTrees());
+        assertEquals(5, tiny.getEvictions());
+
+        tiny.clear();
+        assertEquals(0, tiny.getCachedTrees());
+        assertEquals(0, tiny.getCachedBytes());
+    }
+
+    @Test
+    void builderExceptionsReachCallersAndCacheNothing() throws Exception {
+        SuffixTreeCache cache = new SuffixTreeCache(1 << 20, text -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new IllegalStateException("boom");
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<SuffixTree> first = executor.submit(() -> cache.get("abc"));
+            Future<SuffixTree> second = executor.submit(() -> cache.get("abc"));
+            for (Future<SuffixTree> tree : List.of(first, second)) {
+                ExecutionException e = assertThrows(ExecutionException.class, tree::get);
+                assertEquals(IllegalStateException.class, e.getCause().getClass());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(0, cache.getCachedTrees());
+        assertThrows(IllegalStateException.class, () -> cache.get("abc"));
+    }
+
+    @Test
+    void registersWithThePlatformMBeanServer() throws Exception {
+        SuffixTreeCache cache = new SuffixTreeCache(1 << 20);
+        cache.get("abcab");
+        ObjectName name = cache.register("SuffixTreeCacheTest");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            assertEquals(1L, server.getAttribute(name, "Misses"));
+            assertEquals(1, server.getAttribute(name, "CachedTrees"));
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+}
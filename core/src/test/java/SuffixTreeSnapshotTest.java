@@ -0,0 +1,76 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class SuffixTreeSnapshotTest {
+    @Test
+    void appendingMatchesRebuildingFromScratch() {
+        Random random = new Random(8);
+        for (int trial = 0; trial < 300; ++trial) {
+            int alphabetSize = 1 + random.nextInt(4);
+            SuffixTree tree = new SuffixTree();
+            StringBuilder text = new StringBuilder();
+            while (text.length() < 60) {
+                String chunk = randomString(random, 1 + random.nextInt(5), alphabetSize);
+                if (random.nextBoolean())
+                    tree.append(chunk);
+                else
+                    chunk.chars().forEach(c -> tree.append((char) c));
+                text.append(chunk);
+                assertSameAnswers(new SuffixTree(text.toString()), tree, random, alphabetSize, text.toString());
+            }
+        }
+    }
+
+    //Every snapshot keeps answering for its own prefix however much is appended after it
+    @Test
+    void snapshotsStayPointInTime() {
+        Random random = new Random(80);
+        for (int trial = 0; trial < 300; ++trial) {
+            int alphabetSize = 1 + random.nextInt(4);
+            SuffixTree tree = new SuffixTree();
+            StringBuilder text = new StringBuilder();
+            List<SuffixTreeSnapshot> snapshots = new ArrayList<>();
+            List<SuffixTree> rebuilt = new ArrayList<>();
+            while (text.length() < 60) {
+                String chunk = randomString(random, 1 + random.nextInt(5), alphabetSize);
+                tree.append(chunk);
+                text.append(chunk);
+                snapshots.add(tree.snapshot());
+                rebuilt.add(new SuffixTree(text.toString()));
+                for (int i = 0; i < snapshots.size(); ++i) {
+                    SuffixTreeSnapshot snapshot = snapshots.get(i);
+                    SuffixTree expected = rebuilt.get(i);
+                    String context = expected.getSource() + " of " + text;
+                    assertEquals(expected.length(), snapshot.length(), context);
+                    assertEquals(expected.getInternalNodeDepth(), snapshot.getInternalNodeDepth(), context);
+                    assertSameAnswers(expected, snapshot, random, alphabetSize, context);
+                }
+            }
+        }
+    }
+
+    private static void assertSameAnswers(SuffixTree expected, SubstringIndex actual, Random random,
+                                          int alphabetSize, String context) {
+        assertEquals(expected.getNDistinctSubstrings(), actual.getNDistinctSubstrings(), context);
+        for (int query = 0; query < 5; ++query) {
+            String pattern = randomString(random, random.nextInt(5), alphabetSize + 1);
+            String message = context + " " + pattern;
+            assertArrayEquals(expected.findAll(pattern).sorted().toArray(), actual.findAll(pattern).sorted().toArray(),
+                    message);
+            assertEquals(expected.countOccurrences(pattern), actual.countOccurrences(pattern), message);
+            assertEquals(expected.contains(pattern), actual.contains(pattern), message);
+        }
+    }
+
+    private static String randomString(Random random, int length, int alphabetSize) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < length; ++i)
+            builder.append((char) ('a' + random.nextInt(alphabetSize)));
+        return builder.toString();
+    }
+}
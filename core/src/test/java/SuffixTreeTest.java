@@ -0,0 +1,180 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SuffixTreeTest {
+    @TempDir
+    Path directory;
+
+    //Every char of a run leaves all earlier suffixes pending, which used to mean one stack frame each
+    @Test
+    void buildsLongRunsOnASmallStack() throws InterruptedException {
+        int n = 100_000;
+        String run = "a".repeat(n);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread thread = new Thread(null, () -> {
+            try {
+                assertEquals(n + 1, new SuffixTree(run).getNDistinctSubstrings());
+                assertEquals(n - 1, new SuffixTree(run + "$").getInternalNodeDepth());
+                SuffixTree appended = new SuffixTree();
+                appended.append(run);
+                assertEquals(n + 1, appended.getNDistinctSubstrings());
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        }, "build", 1 << 18);
+        thread.start();
+        thread.join();
+        if (failure.get() != null)
+            throw new AssertionError(failure.get());
+    }
+
+    @Test
+    void repetitiveTextMatchesCompactSuffixTree() {
+        for (String family : new String[]{"fibonacci", "run", "random2"}) {
+            String text = Benchmark.generate(family, 100_000) + "$";
+            SuffixTree tree = new SuffixTree(text);
+            CompactSuffixTree expected = new CompactSuffixTree(text);
+            assertEquals(expected.getNDistinctSubstrings(), tree.getNDistinctSubstrings(), family);
+            assertEquals(expected.getInternalNodeDepth(), tree.getInternalNodeDepth(), family);
+        }
+    }
+
+    @Test
+    void queriesMatchBruteForce() {
+        Random random = new Random(6);
+        for (int trial = 0; trial < 2_000; ++trial) {
+            int alphabetSize = 1 + random.nextInt(4);
+            //Without a terminator the last suffixes stay implicit and are matched separately
+            String text = randomString(random, random.nextInt(40), alphabetSize) + (random.nextBoolean() ? "$" : "");
+            SuffixTree tree = new SuffixTree(text);
+            for (int query = 0; query < 10; ++query) {
+                String pattern = randomString(random, random.nextInt(6), alphabetSize + 1);
+                int[] expected = pattern.isEmpty()
+                        ? IntStream.range(0, text.length()).toArray()
+                        : IntStream.rangeClosed(0, text.length() - pattern.length())
+                                .filter(i -> text.startsWith(pattern, i))
+                                .toArray();
+                String context = text + " " + pattern;
+                assertArrayEquals(expected, tree.findAll(pattern).sorted().toArray(), context);
+                assertEquals(expected.length, tree.countOccurrences(pattern), context);
+                assertEquals(text.contains(pattern), tree.contains(pattern), context);
+            }
+        }
+    }
+
+    @Test
+    void distinctCountsMatchBruteForce() {
+        Random random = new Random(11);
+        for (int trial = 0; trial < 1_000; ++trial) {
+            String text = randomString(random, random.nextInt(40), 1 + random.nextInt(4));
+            long[] prefixCounts = SuffixTree.getPrefixDistinctSubstrings(text);
+            assertEquals(text.length() + 1, prefixCounts.length, text);
+            Set<String> substrings = new HashSet<>();
+            substrings.add("");
+            assertEquals(1, prefixCounts[0], text);
+            for (int end = 1; end <= text.length(); ++end) {
+                //The new substrings of a prefix are the ones ending at its last char
+                for (int start = 0; start < end; ++start)
+                    substrings.add(text.substring(start, end));
+                assertEquals(substrings.size(), prefixCounts[end], text.substring(0, end));
+            }
+            assertEquals(substrings.size(), new SuffixTree(text).getNDistinctSubstrings(), text);
+        }
+    }
+
+    //Random text has about n^2 / 2 distinct substrings, past the int range at this length
+    @Test
+    void distinctCountsDoNotOverflow() {
+        int n = 100_000;
+        String text = Benchmark.generate("random26", n);
+        long[] prefixCounts = SuffixTree.getPrefixDistinctSubstrings(text);
+        long count = new SuffixTree(text).getNDistinctSubstrings();
+        assertEquals(new CompactSuffixTree(text).getNDistinctSubstrings(), count);
+        assertEquals(count, prefixCounts[n]);
+        assertTrue(count > Integer.MAX_VALUE, Long.toString(count));
+        for (int i = 1; i <= n; ++i)
+            assertTrue(prefixCounts[i] > prefixCounts[i - 1], "prefix " + i);
+    }
+
+    @Test
+    void suffixAndLcpArraysMatchBruteForce() throws IOException {
+        Random random = new Random(13);
+        //The large alphabet takes sorted rather than indexed child maps; é and 中 sort after ASCII
+        String[] alphabets = {"a", "ab", "acgt", "abcdefghijklmnopqrstuvwxyz0123456789é中"};
+        for (int trial = 0; trial < 1_000; ++trial) {
+            String alphabet = alphabets[random.nextInt(alphabets.length)];
+            StringBuilder builder = new StringBuilder();
+            for (int i = random.nextInt(50); i > 0; --i)
+                builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            //Without a terminator, suffixes that are prefixes of others must still come first
+            String text = builder + (random.nextBoolean() ? "$" : "");
+            int[] expected = IntStream.range(0, text.length())
+                    .boxed()
+                    .sorted(Comparator.comparing(text::substring))
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+            int[] expectedLcp = new int[text.length()];
+            for (int i = 1; i < text.length(); ++i)
+                while (expected[i] + expectedLcp[i] < text.length() && expected[i - 1] + expectedLcp[i] < text.length()
+                        && text.charAt(expected[i] + expectedLcp[i]) == text.charAt(expected[i - 1] + expectedLcp[i]))
+                    ++expectedLcp[i];
+
+            SuffixTree tree = new SuffixTree(text);
+            assertArrayEquals(expected, tree.getSuffixArray(), text);
+            assertArrayEquals(expectedLcp, tree.getLcpArray(), text);
+            if (trial % 10 == 0) {
+                Path suffixArrayPath = directory.resolve("sa");
+                Path lcpArrayPath = directory.resolve("lcp");
+                tree.writeSuffixArray(suffixArrayPath, lcpArrayPath);
+                assertArrayEquals(expected, readInts(suffixArrayPath), text);
+                assertArrayEquals(expectedLcp, readInts(lcpArrayPath), text);
+            }
+        }
+    }
+
+    //Several times the 1 MB write buffers
+    @Test
+    void writesLargeSuffixArrays() throws IOException {
+        String text = Benchmark.generate("dna", 1_000_000) + "$";
+        SuffixTree tree = new SuffixTree(text);
+        Path suffixArrayPath = directory.resolve("sa");
+        Path lcpArrayPath = directory.resolve("lcp");
+        tree.writeSuffixArray(suffixArrayPath, lcpArrayPath);
+        int[] suffixArray = readInts(suffixArrayPath);
+        assertArrayEquals(tree.getSuffixArray(), suffixArray);
+        assertArrayEquals(tree.getLcpArray(), readInts(lcpArrayPath));
+        int[] sorted = suffixArray.clone();
+        Arrays.sort(sorted);
+        assertArrayEquals(IntStream.range(0, text.length()).toArray(), sorted);
+    }
+
+    private static int[] readInts(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+        int[] values = new int[buffer.remaining() / 4];
+        buffer.asIntBuffer().get(values);
+        return values;
+    }
+
+    private static String randomString(Random random, int length, int alphabetSize) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < length; ++i)
+            builder.append((char) ('a' + random.nextInt(alphabetSize)));
+        return builder.toString();
+    }
+}
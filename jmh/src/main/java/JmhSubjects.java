@@ -0,0 +1,55 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import suffixtree.jmh.Subject;
+
+//The default-package side of suffixtree.jmh.Subject
+public class JmhSubjects {
+    public static Subject forName(String impl) {
+        switch (impl) {
+            case "tree":
+                return new TreeSubject(SuffixTree::new);
+            case "parallel":
+                return new TreeSubject(text -> SuffixTree.buildParallel(text, ForkJoinPool.commonPool()));
+            case "compact":
+                return new Subject() {
+                    public Object build(String text) {
+                        return new CompactSuffixTree(text);
+                    }
+
+                    public long getNDistinctSubstrings(Object index) {
+                        return ((CompactSuffixTree) index).getNDistinctSubstrings();
+                    }
+
+                    public int getInternalNodeDepth(Object index) {
+                        return ((CompactSuffixTree) index).getInternalNodeDepth();
+                    }
+                };
+            default:
+                throw new IllegalArgumentException("Unknown implementation " + impl);
+        }
+    }
+
+    public static String generate(String family, int size) {
+        return Benchmark.generate(family, size);
+    }
+
+    private static class TreeSubject implements Subject {
+        private final Function<String, SuffixTree> builder;
+
+        private TreeSubject(Function<String, SuffixTree> builder) {
+            this.builder = builder;
+        }
+
+        public Object build(String text) {
+            return builder.apply(text);
+        }
+
+        public long getNDistinctSubstrings(Object index) {
+            return ((SuffixTree) index).getNDistinctSubstrings();
+        }
+
+        public int getInternalNodeDepth(Object index) {
+            return ((SuffixTree) index).getInternalNodeDepth();
+        }
+    }
+}
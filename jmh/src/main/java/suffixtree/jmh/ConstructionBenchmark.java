@@ -0,0 +1,48 @@
+package suffixtree.jmh;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+//Time to build an index over size chars of family
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = {"-Xss64m"})
+public class ConstructionBenchmark {
+    @Param({"random2", "random4", "random26", "random256", "fibonacci", "run", "dna"})
+    public String family;
+
+    @Param({"1000", "100000", "1000000", "10000000", "100000000"})
+    public int size;
+
+    @Param({"tree", "compact", "parallel"})
+    public String impl;
+
+    private Subject subject;
+    private String text;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        subject = Subject.forName(impl);
+        text = Subject.generate(family, size);
+    }
+
+    @Benchmark
+    public void construction(Blackhole blackhole) {
+        blackhole.consume(subject.build(text));
+    }
+}
@@ -0,0 +1,41 @@
+package suffixtree.jmh;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+//An index implementation under benchmark. The implementations live in the default package with the sources, which
+//benchmark classes cannot refer to (JMH requires them to be in a named package), so they are looked up by name in
+//JmhSubjects.
+public interface Subject {
+    Object build(String text);
+
+    long getNDistinctSubstrings(Object index);
+
+    int getInternalNodeDepth(Object index);
+
+    //impl is one of "tree", "compact" or "parallel"
+    static Subject forName(String impl) {
+        return (Subject) invoke("forName", impl);
+    }
+
+    //The text of length size from Benchmark's input family
+    static String generate(String family, int size) {
+        return (String) invoke("generate", family, size);
+    }
+
+    private static Object invoke(String method, Object... args) {
+        try {
+            Class<?> subjects = Class.forName("JmhSubjects");
+            for (Method m : subjects.getMethods())
+                if (m.getName().equals(method))
+                    return m.invoke(null, args);
+            throw new NoSuchMethodException("JmhSubjects." + method);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}